@@ -0,0 +1,113 @@
+package info.kgeorgiy.ja.urazov.concurrent;
+
+import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures list-producing methods of {@link IterativeParallelism} against the same operations
+ * expressed as {@link IterativeParallelism#mapReduce mapReduce}, which lifts every element into its own
+ * list or builder. Run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IterativeParallelismBenchmark {
+    /**
+     * How {@link IterativeParallelism} runs chunks
+     */
+    public enum Mode {
+        /** New thread per chunk */
+        THREADS,
+        /** Shared {@link ParallelMapperImpl} */
+        MAPPER,
+        /** {@link ForkJoinPool#commonPool() Common pool} */
+        FORK_JOIN
+    }
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    @Param({"4"})
+    private int threads;
+
+    @Param({"THREADS", "MAPPER", "FORK_JOIN"})
+    private Mode mode;
+
+    private List<Integer> values;
+    private ParallelMapperImpl mapper;
+    private IterativeParallelism parallelism;
+
+    @Setup
+    public void setup() {
+        values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        parallelism = switch (mode) {
+            case THREADS -> new IterativeParallelism();
+            case MAPPER -> new IterativeParallelism(mapper = new ParallelMapperImpl(threads));
+            case FORK_JOIN -> new IterativeParallelism(ForkJoinPool.commonPool());
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mapper != null) {
+            mapper.close();
+        }
+    }
+
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return parallelism.map(threads, values, x -> x + 1);
+    }
+
+    @Benchmark
+    public List<Integer> mapLifted() throws InterruptedException {
+        return parallelism.mapReduce(threads, values, x -> new ArrayList<>(List.of(x + 1)), listMonoid());
+    }
+
+    @Benchmark
+    public List<Integer> filter() throws InterruptedException {
+        return parallelism.filter(threads, values, x -> (x & 1) == 0);
+    }
+
+    @Benchmark
+    public List<Integer> filterLifted() throws InterruptedException {
+        return parallelism.mapReduce(threads, values,
+                x -> (x & 1) == 0 ? new ArrayList<>(List.of(x)) : new ArrayList<>(), listMonoid());
+    }
+
+    @Benchmark
+    public String join() throws InterruptedException {
+        return parallelism.join(threads, values);
+    }
+
+    @Benchmark
+    public String joinLifted() throws InterruptedException {
+        final StringBuilder identity = new StringBuilder();
+        return parallelism.mapReduce(threads, values, x -> new StringBuilder(x.toString()),
+                new AdvancedIP.Monoid<>(identity, (x, y) -> x == identity ? y : x.append(y))).toString();
+    }
+
+    /**
+     * Concatenation of lists, which appends to left list unless it is the shared identity
+     */
+    private static AdvancedIP.Monoid<List<Integer>> listMonoid() {
+        final List<Integer> identity = List.of();
+        return new AdvancedIP.Monoid<>(identity, (x, y) -> {
+            if (x == identity) {
+                return y;
+            }
+            x.addAll(y);
+            return x;
+        });
+    }
+}
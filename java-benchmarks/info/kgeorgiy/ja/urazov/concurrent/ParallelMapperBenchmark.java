@@ -0,0 +1,49 @@
+package info.kgeorgiy.ja.urazov.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Measures {@link ParallelMapperImpl#map} of cheap function with several clients sharing one mapper,
+ * for every {@link ParallelMapperImpl.QueueType type of task queue}. Change number of clients with {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ParallelMapperBenchmark {
+    @Param({"100", "100000"})
+    private int size;
+
+    @Param({"4"})
+    private int threads;
+
+    @Param({"MONITOR", "STEALING"})
+    private ParallelMapperImpl.QueueType queue;
+
+    private List<Integer> values;
+    private ParallelMapperImpl mapper;
+
+    @Setup
+    public void setup() {
+        values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        mapper = new ParallelMapperImpl(threads, queue);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mapper.close();
+    }
+
+    @Benchmark
+    public List<Integer> map() throws InterruptedException {
+        return mapper.map(x -> x + 1, values);
+    }
+}
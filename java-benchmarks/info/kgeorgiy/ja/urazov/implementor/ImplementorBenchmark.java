@@ -0,0 +1,170 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+import info.kgeorgiy.java.advanced.implementor.JarImpler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures end-to-end {@link Implementor} operations over a corpus of types. Every invocation uses
+ * a new {@link Implementor}, so its caches of sources and class files are empty, while cache keys and
+ * reflected method sets, which are memoized per class in static {@link ClassValue}s, stay warm after
+ * the first invocation of a fork, as they would in a long-running process.
+ * Each benchmark takes states carrying only parameters it depends on, so that no combination
+ * of parameters is measured twice. Jar files are built of {@link ImplementorCorpus#CLASSPATH} only,
+ * since neither backend can compile types of {@link ImplementorCorpus#JDK}.
+ * Run {@link ImplementorPhases} to see how time splits between phases, or add {@code -prof jfr}
+ * to record {@link ImplementorEvent phase events} of a benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImplementorBenchmark {
+    /**
+     * Corpus and escaping policy of written sources
+     */
+    @State(Scope.Benchmark)
+    public static class Sources {
+        @Param({"JDK", "CLASSPATH"})
+        private ImplementorCorpus corpus;
+
+        @Param({"NON_ASCII", "ALL"})
+        private Implementor.Escaping escaping;
+
+        private List<Class<?>> tokens;
+        private Path directory;
+
+        @Setup
+        public void setup() throws ImplerException, IOException {
+            tokens = corpus.load();
+            directory = Files.createTempDirectory("implementor-benchmark");
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Backend producing class files of {@link ImplementorCorpus#CLASSPATH} corpus
+     */
+    @State(Scope.Benchmark)
+    public static class Classes {
+        @Param({"BYTECODE", "JAVAC"})
+        private Implementor.Backend backend;
+
+        private List<Class<?>> tokens;
+        private List<Class<?>> implementable;
+        private Path directory;
+
+        @Setup
+        public void setup() throws ImplerException, IOException {
+            tokens = ImplementorCorpus.CLASSPATH.load();
+            directory = Files.createTempDirectory("implementor-benchmark");
+            implementable = new Implementor(null, backend)
+                    .implementJarParallel(tokens, directory.resolve("implementable.jar"), 1).stream()
+                    .filter(report -> report.error() == null)
+                    .<Class<?>>map(Implementor.Report::token)
+                    .toList();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Number of threads of {@link Implementor#implementJarParallel(List, Path, int)}
+     */
+    @State(Scope.Benchmark)
+    public static class Parallelism {
+        @Param({"1", "4"})
+        private int threads;
+    }
+
+    /**
+     * Reflection, source generation and escaping of every type
+     */
+    @Benchmark
+    public Path implement(final Sources sources) throws ImplerException {
+        final Implementor implementor = new Implementor();
+        for (final Class<?> token : sources.tokens) {
+            implementor.implement(token, sources.directory, sources.escaping);
+        }
+        return sources.directory;
+    }
+
+    /**
+     * Jar file of every implementable type, produced by {@link JarImpler#implementJar(Class, Path)}
+     * one type at a time
+     */
+    @Benchmark
+    public Path implementJar(final Classes classes) throws ImplerException {
+        final JarImpler implementor = new Implementor(null, classes.backend);
+        final Path jar = classes.directory.resolve("type.jar");
+        for (final Class<?> token : classes.implementable) {
+            implementor.implementJar(token, jar);
+        }
+        return jar;
+    }
+
+    /**
+     * Class files of every type, produced in parallel and written to single jar file.
+     * Types which can not be implemented are reported and skipped.
+     */
+    @Benchmark
+    public List<Implementor.Report> implementJarParallel(final Classes classes, final Parallelism parallelism)
+            throws ImplerException {
+        return new Implementor(null, classes.backend)
+                .implementJarParallel(classes.tokens, classes.directory.resolve("corpus.jar"), parallelism.threads);
+    }
+
+    /**
+     * Incremental rebuild of up-to-date jar file
+     */
+    @Benchmark
+    public List<Class<?>> implementJarIncremental(final Classes classes, final IncrementalState state)
+            throws ImplerException {
+        return new Implementor(null, classes.backend).implementJarIncremental(classes.implementable, state.jar);
+    }
+
+    /**
+     * Jar file of implementable types of corpus built once per trial, which incremental
+     * rebuild finds up-to-date
+     */
+    @State(Scope.Benchmark)
+    public static class IncrementalState {
+        private Path jar;
+
+        @Setup
+        public void setup(final Classes classes) throws ImplerException {
+            jar = classes.directory.resolve("incremental.jar");
+            new Implementor(null, classes.backend).implementJarIncremental(classes.implementable, jar);
+        }
+    }
+
+    /**
+     * Deletes directory with all its content
+     *
+     * @param directory directory to be deleted
+     * @throws IOException if some file can not be deleted
+     */
+    private static void delete(final Path directory) throws IOException {
+        try (final Stream<Path> files = Files.walk(directory)) {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sets of interfaces and abstract classes to be implemented by benchmarks
+ */
+public enum ImplementorCorpus {
+    /**
+     * Types of {@code java.util.*} and {@code javax.*} packages of {@code java.base}.
+     * Their implementations belong to packages of a named platform module, which javac refuses
+     * to compile into and {@link Implementor.Backend#BYTECODE} leaves to javac, so this corpus
+     * measures source generation only.
+     */
+    JDK(false) {
+        @Override
+        List<Class<?>> load() throws ImplerException {
+            final List<Class<?>> tokens = new ArrayList<>();
+            for (final Class<?> token : ImplementorScanner.scanModule("java.base", null)) {
+                if (token.getPackageName().startsWith("java.util") || token.getPackageName().startsWith("javax.")) {
+                    tokens.add(token);
+                }
+            }
+            return tokens;
+        }
+    },
+    /**
+     * Types of JMH jar on the class path, which any backend can implement
+     */
+    CLASSPATH(true) {
+        @Override
+        List<Class<?>> load() throws ImplerException {
+            try {
+                final Path jar = Path.of(org.openjdk.jmh.Main.class.getProtectionDomain()
+                        .getCodeSource().getLocation().toURI());
+                return ImplementorScanner.scanJar(jar, ImplementorCorpus.class.getClassLoader());
+            } catch (final URISyntaxException e) {
+                throw new ImplerException("Cannot locate JMH jar. " + e.getMessage());
+            }
+        }
+    };
+
+    /**
+     * Whether implementations of types of corpus can be compiled
+     */
+    private final boolean compilable;
+
+    ImplementorCorpus(final boolean compilable) {
+        this.compilable = compilable;
+    }
+
+    /**
+     * Checks whether implementations of types of corpus can be compiled and packed to jar files
+     *
+     * @return {@code false} if no backend can compile them
+     */
+    boolean compilable() {
+        return compilable;
+    }
+
+    /**
+     * Loads types of corpus
+     *
+     * @return implementable types
+     * @throws ImplerException if types can not be found
+     */
+    abstract List<Class<?>> load() throws ImplerException;
+}
@@ -0,0 +1,108 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * End-to-end timing harness, which implements a corpus of types by every backend under a Flight
+ * Recorder recording of {@link ImplementorEvent phase events} and prints how time splits between
+ * reflection, generation, escaping, compilation and jar writing. Every type is implemented twice
+ * per repetition: sources are escaped and written as they are generated first, and then written
+ * from cache, which is what escaping phase measures. Jar files are built of
+ * {@link ImplementorCorpus#compilable() compilable} corpora only.
+ * <p>
+ * Usage: {@code ImplementorPhases [JDK|CLASSPATH] [repetitions]}
+ */
+public final class ImplementorPhases {
+    private ImplementorPhases() {
+    }
+
+    /**
+     * Total time and number of events of a phase
+     */
+    private static final class Total {
+        private long count;
+        private long types;
+        private Duration duration = Duration.ZERO;
+    }
+
+    public static void main(final String[] args) throws ImplerException, IOException {
+        final ImplementorCorpus corpus = ImplementorCorpus.valueOf(args.length > 0 ? args[0] : "CLASSPATH");
+        final int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        final List<Class<?>> tokens = corpus.load();
+        final Path directory = Files.createTempDirectory("implementor-phases");
+
+        for (final Implementor.Backend backend : Implementor.Backend.values()) {
+            final Path recordingFile = directory.resolve(backend + ".jfr");
+            long implementNanos = 0;
+            long jarNanos = 0;
+            int implementFailed = 0;
+            int failed = 0;
+            try (final Recording recording = new Recording()) {
+                recording.enable(ImplementorEvent.NAME).withThreshold(Duration.ZERO);
+                recording.start();
+                for (int i = 0; i < repetitions; i++) {
+                    final Implementor implementor = new Implementor(null, backend);
+                    final long start = System.nanoTime();
+                    implementFailed = 0;
+                    for (final Class<?> token : tokens) {
+                        try {
+                            implementor.implement(token, directory.resolve("src"));
+                            implementor.implement(token, directory.resolve("src"));
+                        } catch (final ImplerException e) {
+                            implementFailed++;
+                        }
+                    }
+                    final long middle = System.nanoTime();
+                    if (!corpus.compilable()) {
+                        implementNanos += middle - start;
+                        continue;
+                    }
+                    failed = (int) new Implementor(null, backend)
+                            .implementJarParallel(tokens, directory.resolve(backend + ".jar"), 1).stream()
+                            .filter(report -> report.error() != null)
+                            .count();
+                    implementNanos += middle - start;
+                    jarNanos += System.nanoTime() - middle;
+                }
+                recording.stop();
+                recording.dump(recordingFile);
+            }
+
+            final Map<String, Total> totals = new TreeMap<>();
+            for (final RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+                final Total total = totals.computeIfAbsent(event.getString("phase"), phase -> new Total());
+                total.count++;
+                total.types += event.getInt("types");
+                total.duration = total.duration.plus(event.getDuration());
+            }
+
+            System.out.printf("%s backend, %s corpus of %d types, %d repetitions%n",
+                    backend, corpus, tokens.size(), repetitions);
+            System.out.printf("  implement     %10.3f ms per run, %d types failed%n",
+                    implementNanos / 1e6 / repetitions, implementFailed);
+            if (corpus.compilable()) {
+                System.out.printf("  implementJar  %10.3f ms per run, %d types failed%n",
+                        jarNanos / 1e6 / repetitions, failed);
+            } else {
+                System.out.printf("  implementJar  skipped, %s corpus can not be compiled%n", corpus);
+            }
+            for (final Map.Entry<String, Total> entry : totals.entrySet()) {
+                final Total total = entry.getValue();
+                System.out.printf("  %-12s  %10.3f ms per run, %8d events, %8.3f us per type%n",
+                        entry.getKey(), total.duration.toNanos() / 1e6 / repetitions, total.count,
+                        total.duration.toNanos() / 1e3 / Math.max(total.types, 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures aggregates of a roster which is queried repeatedly and modified between queries:
+ * recomputed by {@link StudentDB}, cached by {@link CachingStudentDB} over snapshots of
+ * {@link LiveStudentDB}, and maintained incrementally by {@link LiveStudentDB} itself.
+ * Run with {@code -prof gc} to get allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentCacheBenchmark {
+    private static final long SEED = 3239;
+
+    @Param({"1000", "1000000"})
+    private int size;
+
+    private final StudentDB db = new StudentDB();
+    private final Random random = new Random(SEED);
+
+    private List<Student> roster;
+    private LiveStudentDB live;
+    private CachingStudentDB caching;
+
+    @Setup
+    public void setup() {
+        roster = StudentGenerator.generate(SEED, size, 8, 1000, 1.0);
+        live = new LiveStudentDB(roster);
+        caching = new CachingStudentDB(db, 16);
+    }
+
+    /**
+     * Moves random student to random group
+     */
+    private void update() {
+        final Student student = roster.get(random.nextInt(roster.size()));
+        live.update(new Student(student.getId(), student.getFirstName(), student.getLastName(),
+                GroupName.values()[random.nextInt(8)]));
+    }
+
+    @Benchmark
+    public GroupName recomputed() {
+        return db.getLargestGroup(live.getStudents());
+    }
+
+    @Benchmark
+    public GroupName cached() {
+        return caching.getLargestGroup(live.getStudents());
+    }
+
+    @Benchmark
+    public GroupName incremental() {
+        return live.getLargestGroup();
+    }
+
+    @Benchmark
+    public GroupName recomputedAfterUpdate() {
+        update();
+        return db.getLargestGroup(live.getStudents());
+    }
+
+    @Benchmark
+    public GroupName cachedAfterUpdate() {
+        update();
+        return caching.getLargestGroup(live.getStudents());
+    }
+
+    @Benchmark
+    public GroupName incrementalAfterUpdate() {
+        update();
+        return live.getLargestGroup();
+    }
+}
@@ -0,0 +1,199 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.java.advanced.student.AdvancedQuery;
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Measures every {@link AdvancedQuery} method of {@link StudentDB} over differently stored
+ * rosters. Loading and caching of rosters are measured by {@link StudentLoaderBenchmark} and
+ * {@link StudentCacheBenchmark}. Run with {@code -prof gc} to get allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentDBBenchmark {
+    private static final long SEED = 3239;
+    private static final int INDICES = 1000;
+
+    /**
+     * How roster is passed to queries
+     */
+    public enum Storage {
+        /** {@link ArrayList} processed by streams */
+        LIST(ArrayList::new),
+        /** {@link LinkedList}, which has no random access */
+        LINKED(LinkedList::new),
+        /** Column-oriented {@link StudentTable} */
+        TABLE(StudentTable::new),
+        /** Snapshot of {@link LiveStudentDB} */
+        LIVE(students -> new LiveStudentDB(students).getStudents());
+
+        private final Function<Collection<Student>, List<Student>> wrap;
+
+        Storage(final Function<Collection<Student>, List<Student>> wrap) {
+            this.wrap = wrap;
+        }
+    }
+
+    @Param({"1000", "1000000"})
+    private int size;
+
+    @Param({"8"})
+    private int groups;
+
+    @Param({"1000"})
+    private int names;
+
+    @Param({"1.0", "4.0"})
+    private double skew;
+
+    @Param({"LIST", "LINKED", "TABLE", "LIVE"})
+    private Storage storage;
+
+    private final StudentDB db = new StudentDB();
+
+    private List<Student> students;
+    private String firstName;
+    private String lastName;
+    private GroupName group;
+    private int[] indices;
+
+    @Setup
+    public void setup() {
+        final List<Student> roster = StudentGenerator.generate(SEED, size, groups, names, skew);
+        students = storage.wrap.apply(roster);
+
+        final Student sample = roster.get(0);
+        firstName = sample.getFirstName();
+        lastName = sample.getLastName();
+        group = sample.getGroup();
+
+        final Random random = new Random(SEED);
+        indices = random.ints(INDICES, 0, size).toArray();
+    }
+
+    @Benchmark
+    public List<String> getFirstNames() {
+        return db.getFirstNames(students);
+    }
+
+    @Benchmark
+    public List<String> getLastNames() {
+        return db.getLastNames(students);
+    }
+
+    @Benchmark
+    public List<GroupName> getGroups() {
+        return db.getGroups(students);
+    }
+
+    @Benchmark
+    public List<String> getFullNames() {
+        return db.getFullNames(students);
+    }
+
+    @Benchmark
+    public Set<String> getDistinctFirstNames() {
+        return db.getDistinctFirstNames(students);
+    }
+
+    @Benchmark
+    public String getMaxStudentFirstName() {
+        return db.getMaxStudentFirstName(students);
+    }
+
+    @Benchmark
+    public List<Student> sortStudentsById() {
+        return db.sortStudentsById(students);
+    }
+
+    @Benchmark
+    public List<Student> sortStudentsByName() {
+        return db.sortStudentsByName(students);
+    }
+
+    @Benchmark
+    public List<Student> findStudentsByFirstName() {
+        return db.findStudentsByFirstName(students, firstName);
+    }
+
+    @Benchmark
+    public List<Student> findStudentsByLastName() {
+        return db.findStudentsByLastName(students, lastName);
+    }
+
+    @Benchmark
+    public List<Student> findStudentsByGroup() {
+        return db.findStudentsByGroup(students, group);
+    }
+
+    @Benchmark
+    public List<Student> findStudentsByGroupPage() {
+        return db.findStudentsByGroup(students, group, 0, 50);
+    }
+
+    @Benchmark
+    public Map<String, String> findStudentNamesByGroup() {
+        return db.findStudentNamesByGroup(students, group);
+    }
+
+    @Benchmark
+    public List<Group> getGroupsByName() {
+        return db.getGroupsByName(students);
+    }
+
+    @Benchmark
+    public List<Group> getGroupsById() {
+        return db.getGroupsById(students);
+    }
+
+    @Benchmark
+    public GroupName getLargestGroup() {
+        return db.getLargestGroup(students);
+    }
+
+    @Benchmark
+    public GroupName getLargestGroupFirstName() {
+        return db.getLargestGroupFirstName(students);
+    }
+
+    @Benchmark
+    public String getMostPopularName() {
+        return db.getMostPopularName(students);
+    }
+
+    @Benchmark
+    public List<String> getFirstNamesByIndices() {
+        return db.getFirstNames(students, indices);
+    }
+
+    @Benchmark
+    public List<String> getLastNamesByIndices() {
+        return db.getLastNames(students, indices);
+    }
+
+    @Benchmark
+    public List<GroupName> getGroupsByIndices() {
+        return db.getGroups(students, indices);
+    }
+
+    @Benchmark
+    public List<String> getFullNamesByIndices() {
+        return db.getFullNames(students, indices);
+    }
+
+    @Benchmark
+    public StudentReport report() {
+        return db.report(students, EnumSet.allOf(StudentReport.Aggregate.class));
+    }
+}
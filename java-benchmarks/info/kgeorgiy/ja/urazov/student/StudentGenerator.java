@@ -0,0 +1,50 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic rosters
+ */
+public final class StudentGenerator {
+    private StudentGenerator() {
+    }
+
+    /**
+     * Generates roster of students with unique ids in random order
+     *
+     * @param seed random seed
+     * @param size number of students
+     * @param groups number of used groups, at most number of {@link GroupName} values
+     * @param names number of distinct first and last names
+     * @param skew name distribution skew: {@code 1} is uniform, larger values make
+     *             names with smaller indices more frequent
+     * @return generated students
+     */
+    public static List<Student> generate(final long seed, final int size, final int groups,
+                                         final int names, final double skew) {
+        final Random random = new Random(seed);
+        final GroupName[] groupNames = GroupName.values();
+        final int groupCount = Math.min(groups, groupNames.length);
+
+        final List<Student> students = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            students.add(new Student(i,
+                    "First" + skewed(random, names, skew),
+                    "Last" + skewed(random, names, skew),
+                    groupNames[random.nextInt(groupCount)]));
+        }
+        for (int i = size - 1; i > 0; i--) {
+            students.set(i, students.set(random.nextInt(i + 1), students.get(i)));
+        }
+        return students;
+    }
+
+    private static int skewed(final Random random, final int bound, final double skew) {
+        return (int) (bound * Math.pow(random.nextDouble(), skew));
+    }
+}
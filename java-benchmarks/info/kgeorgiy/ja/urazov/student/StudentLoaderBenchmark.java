@@ -0,0 +1,91 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.java.advanced.student.Student;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading of rosters by {@link StudentLoader}: parallel parsing of CSV files
+ * and reading of binary snapshots. Run with {@code -prof gc} to get allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentLoaderBenchmark {
+    private static final long SEED = 3239;
+
+    /**
+     * CSV file and snapshot of the same generated roster
+     */
+    @State(Scope.Benchmark)
+    public static class Roster {
+        @Param({"1000000"})
+        private int size;
+
+        private Path csv;
+        private Path snapshot;
+
+        @Setup
+        public void setup() throws IOException {
+            final List<Student> students = StudentGenerator.generate(SEED, size, 8, 1000, 1.0);
+            csv = Files.createTempFile("students", ".csv");
+            snapshot = Files.createTempFile("students", ".snapshot");
+            try (final BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+                writer.write("id,firstName,lastName,group");
+                writer.newLine();
+                for (final Student student : students) {
+                    writer.write(student.getId() + "," + student.getFirstName() + ","
+                            + student.getLastName() + "," + student.getGroup().name());
+                    writer.newLine();
+                }
+            }
+            StudentLoader.writeSnapshot(students, snapshot);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.delete(csv);
+            Files.delete(snapshot);
+        }
+    }
+
+    /**
+     * Number of threads parsing CSV file
+     */
+    @State(Scope.Benchmark)
+    public static class Parsers {
+        @Param({"1", "4"})
+        private int threads;
+    }
+
+    @Benchmark
+    public List<Student> loadCsv(final Roster roster, final Parsers parsers)
+            throws IOException, InterruptedException {
+        return StudentLoader.loadCsv(roster.csv, parsers.threads);
+    }
+
+    @Benchmark
+    public StudentTable loadCsvTable(final Roster roster, final Parsers parsers)
+            throws IOException, InterruptedException {
+        return StudentLoader.loadCsvTable(roster.csv, parsers.threads);
+    }
+
+    @Benchmark
+    public List<Student> readSnapshot(final Roster roster) throws IOException {
+        return StudentLoader.readSnapshot(roster.snapshot);
+    }
+
+    @Benchmark
+    public StudentTable readSnapshotTable(final Roster roster) throws IOException {
+        return StudentLoader.readSnapshotTable(roster.snapshot);
+    }
+}
@@ -1,8 +1,16 @@
 package info.kgeorgiy.ja.urazov.concurrent;
 
 import java.util.List;
+import java.util.concurrent.ThreadFactory;
 
 public class ConcurrentUtils {
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = lookupVirtualThreadFactory();
+    private static final ThreadFactory PLATFORM_THREAD_FACTORY = runnable -> {
+        final Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    };
+
     /**
      * Joins threads from given list of threads and collects errors that led to interruption
      * to exceptionHandler if it is not null
@@ -41,4 +49,33 @@ public class ConcurrentUtils {
     public static void joinResults(final List<Thread> threadList) {
         joinResults(threadList, null);
     }
+
+    /**
+     * Returns factory of unstarted virtual threads. On runtimes without virtual threads
+     * returns factory of daemon platform threads, so callers should bound concurrency
+     *
+     * @return factory of virtual threads if they are supported
+     */
+    public static ThreadFactory virtualThreadFactory() {
+        return supportsVirtualThreads() ? VIRTUAL_THREAD_FACTORY : PLATFORM_THREAD_FACTORY;
+    }
+
+    /**
+     * Checks whether {@link #virtualThreadFactory()} makes virtual threads
+     *
+     * @return {@code true} if runtime supports virtual threads
+     */
+    public static boolean supportsVirtualThreads() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    private static ThreadFactory lookupVirtualThreadFactory() {
+        try {
+            // Thread.ofVirtual().factory(), looked up reflectively to keep compiling for older runtimes
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (final ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
 }
@@ -4,12 +4,25 @@ import info.kgeorgiy.java.advanced.concurrent.AdvancedIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.*;
 import java.util.stream.Collectors;
 
 public class IterativeParallelism implements AdvancedIP {
+    /**
+     * Number of leaf tasks per requested thread in fork-join mode, so that idle workers
+     * have something to steal when elements differ in cost
+     */
+    private static final int LEAVES_PER_THREAD = 4;
+
     private final ParallelMapper parallelMapper;
-    private final List<Thread> threadList;
+    private final ForkJoinPool forkJoinPool;
+    private final ThreadFactory threadFactory;
 
     /**
      * Creates an instance of {@code IterativeParallelism}
@@ -18,19 +31,56 @@ public class IterativeParallelism implements AdvancedIP {
      * @param parallelMapper {@code ParallelMapper} for mapping functions
      */
     public IterativeParallelism(final ParallelMapper parallelMapper) {
-        this(null, parallelMapper);
+        this(parallelMapper, null, null);
+    }
+
+    /**
+     * Creates an instance of {@code IterativeParallelism}
+     * which runs on given {@code ForkJoinPool}. Values are split recursively
+     * into ranges, which idle workers of the pool steal from busy ones,
+     * and the {@code threads} argument of methods only bounds the granularity of splitting
+     *
+     * @param forkJoinPool pool to run on, e.g. {@link ForkJoinPool#commonPool()}
+     */
+    public IterativeParallelism(final ForkJoinPool forkJoinPool) {
+        this(null, Objects.requireNonNull(forkJoinPool), null);
+    }
+
+    /**
+     * Creates an instance of {@code IterativeParallelism}
+     * which starts a thread made by given factory for each chunk of values
+     *
+     * @param threadFactory factory of threads, e.g. {@link ConcurrentUtils#virtualThreadFactory()}
+     */
+    public IterativeParallelism(final ThreadFactory threadFactory) {
+        this(null, null, Objects.requireNonNull(threadFactory));
     }
 
     /**
      * Creates an instance of {@code IterativeParallelism}
      */
     public IterativeParallelism() {
-        this(new ArrayList<>(), null);
+        this(null, null, Thread::new);
     }
 
-    private IterativeParallelism(final List<Thread> threadList, final ParallelMapper parallelMapper) {
+    private IterativeParallelism(final ParallelMapper parallelMapper, final ForkJoinPool forkJoinPool,
+                                 final ThreadFactory threadFactory) {
         this.parallelMapper = parallelMapper;
-        this.threadList = threadList;
+        this.forkJoinPool = forkJoinPool;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Creates an instance of {@code IterativeParallelism}
+     * which runs each chunk of values in a virtual thread, so the {@code threads} argument
+     * of methods may be in thousands for blocking functions
+     *
+     * @param maxConcurrency maximal number of chunks processed at the same time
+     *
+     * @return {@code IterativeParallelism} running on {@link VirtualThreadMapper}
+     */
+    public static IterativeParallelism virtual(final int maxConcurrency) {
+        return new IterativeParallelism(new VirtualThreadMapper(maxConcurrency));
     }
 
     /**
@@ -71,8 +121,22 @@ public class IterativeParallelism implements AdvancedIP {
      */
     @Override
     public String join(int threads, List<?> values) throws InterruptedException {
-        return parallelProcessing(threads, values, x -> new StringBuilder(x.toString()),
-                StringBuilder::new, StringBuilder::append).toString();
+        final ShortCircuit<?> shortCircuit = ShortCircuit.cancellable();
+        final List<StringBuilder> parts = processChunks(threads, values, shortCircuit, chunk -> {
+            final StringBuilder part = new StringBuilder();
+            int index = chunk.offset();
+            for (final Object value : chunk.values()) {
+                if (Thread.currentThread().isInterrupted() || shortCircuit.stopped(index++)) {
+                    break;
+                }
+                part.append(value.toString());
+            }
+            return part;
+        });
+
+        final StringBuilder result = new StringBuilder(parts.stream().mapToInt(StringBuilder::length).sum());
+        parts.forEach(result::append);
+        return result.toString();
     }
 
     /**
@@ -89,7 +153,24 @@ public class IterativeParallelism implements AdvancedIP {
     @Override
     public <T> List<T> filter(int threads, List<? extends T> values,
                               Predicate<? super T> predicate) throws InterruptedException {
-        return parallelProcessing(threads, values, x -> predicate.test(x) ? 1 : 0, Function.identity());
+        final ShortCircuit<?> shortCircuit = ShortCircuit.cancellable();
+        final List<List<T>> parts = processChunks(threads, values, shortCircuit, chunk -> {
+            final List<T> part = new ArrayList<>(chunk.values().size());
+            int index = chunk.offset();
+            for (final T value : chunk.values()) {
+                if (Thread.currentThread().isInterrupted() || shortCircuit.stopped(index++)) {
+                    break;
+                }
+                if (predicate.test(value)) {
+                    part.add(value);
+                }
+            }
+            return part;
+        });
+
+        final List<T> result = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(result::addAll);
+        return result;
     }
 
     /**
@@ -106,7 +187,21 @@ public class IterativeParallelism implements AdvancedIP {
     @Override
     public <T, U> List<U> map(int threads, List<? extends T> values,
                               Function<? super T, ? extends U> f) throws InterruptedException {
-        return parallelProcessing(threads, values, x -> 1, f);
+        final Object[] result = new Object[values.size()];
+        final ShortCircuit<?> shortCircuit = ShortCircuit.cancellable();
+        processChunks(threads, values, shortCircuit, chunk -> {
+            int index = chunk.offset();
+            for (final T value : chunk.values()) {
+                if (Thread.currentThread().isInterrupted() || shortCircuit.stopped(index)) {
+                    break;
+                }
+                result[index++] = f.apply(value);
+            }
+            return null;
+        });
+
+        @SuppressWarnings("unchecked") final List<U> mapped = (List<U>) Arrays.asList(result);
+        return mapped;
     }
 
     /**
@@ -178,7 +273,7 @@ public class IterativeParallelism implements AdvancedIP {
     public <T> boolean all(int threads, List<? extends T> values, Predicate<? super T> predicate)
             throws InterruptedException {
         return parallelProcessing(threads, values, predicate::test, () -> Boolean.TRUE,
-                Boolean::logicalAnd);
+                Boolean::logicalAnd, new ShortCircuit<>(result -> !result, false));
     }
 
     /**
@@ -196,38 +291,176 @@ public class IterativeParallelism implements AdvancedIP {
     @Override
     public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate)
             throws InterruptedException {
-        return !all(threads, values, predicate.negate());
+        return parallelProcessing(threads, values, predicate::test, () -> Boolean.FALSE,
+                Boolean::logicalOr, new ShortCircuit<>(result -> result, false));
+    }
+
+    /**
+     * Returns first value satisfying predicate.
+     * Once a value is found, values after it are not tested.
+     *
+     * @param threads number or concurrent threads.
+     * @param values values to test.
+     * @param predicate test predicate.
+     * @param <T> value type.
+     *
+     * @return first value satisfying predicate or empty {@code Optional}, if there is no such value
+     *
+     * @throws InterruptedException if executing thread was interrupted.
+     * @throws NullPointerException if found value is {@code null},
+     * use {@link #findFirstIndex(int, List, Predicate)} to find {@code null} values.
+     */
+    public <T> Optional<T> findFirst(int threads, List<? extends T> values, Predicate<? super T> predicate)
+            throws InterruptedException {
+        return found(values, findFirstIndex(threads, values, predicate));
+    }
+
+    /**
+     * Returns index of first value satisfying predicate.
+     * Once a value is found, values after it are not tested.
+     *
+     * @param threads number or concurrent threads.
+     * @param values values to test.
+     * @param predicate test predicate.
+     * @param <T> value type.
+     *
+     * @return index of first value satisfying predicate, which may be {@code null},
+     * or {@code -1}, if there is no such value
+     *
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public <T> int findFirstIndex(int threads, List<? extends T> values, Predicate<? super T> predicate)
+            throws InterruptedException {
+        return find(threads, values, predicate, true);
+    }
+
+    /**
+     * Returns any value satisfying predicate.
+     * Once a value is found, no more values are tested.
+     *
+     * @param threads number or concurrent threads.
+     * @param values values to test.
+     * @param predicate test predicate.
+     * @param <T> value type.
+     *
+     * @return value satisfying predicate or empty {@code Optional}, if there is no such value
+     *
+     * @throws InterruptedException if executing thread was interrupted.
+     * @throws NullPointerException if found value is {@code null},
+     * use {@link #findAnyIndex(int, List, Predicate)} to find {@code null} values.
+     */
+    public <T> Optional<T> findAny(int threads, List<? extends T> values, Predicate<? super T> predicate)
+            throws InterruptedException {
+        return found(values, findAnyIndex(threads, values, predicate));
+    }
+
+    /**
+     * Returns index of any value satisfying predicate.
+     * Once a value is found, no more values are tested.
+     *
+     * @param threads number or concurrent threads.
+     * @param values values to test.
+     * @param predicate test predicate.
+     * @param <T> value type.
+     *
+     * @return index of value satisfying predicate, which may be {@code null},
+     * or {@code -1}, if there is no such value
+     *
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public <T> int findAnyIndex(int threads, List<? extends T> values, Predicate<? super T> predicate)
+            throws InterruptedException {
+        return find(threads, values, predicate, false);
     }
 
 
     // -------------- private section ------------------
 
+    /**
+     * Finds index of value satisfying predicate. Each chunk reports index of its first such value
+     * or {@code -1}, so found value is told apart from absent one by index, even if it is {@code null}
+     *
+     * @return index of found value or {@code -1}
+     */
+    private <T> int find(final int threads,
+                         final List<? extends T> values,
+                         final Predicate<? super T> predicate,
+                         final boolean first) throws InterruptedException {
+        final ShortCircuit<Integer> shortCircuit = new ShortCircuit<>(index -> index >= 0, first);
+        final List<Integer> indices = this.<T, Integer>processChunks(threads, values, shortCircuit, chunk -> {
+            int index = chunk.offset();
+            for (final T value : chunk.values()) {
+                if (Thread.currentThread().isInterrupted() || shortCircuit.stopped(index)) {
+                    break;
+                }
+                if (predicate.test(value)) {
+                    shortCircuit.decided(index, index);
+                    return index;
+                }
+                index++;
+            }
+            return -1;
+        });
+        // chunks before the first found value are never stopped, so it is found by the first successful chunk
+        return indices.stream().filter(index -> index >= 0).findFirst().orElse(-1);
+    }
+
+    private static <T> Optional<T> found(final List<? extends T> values, final int index) {
+        return index < 0 ? Optional.empty() : Optional.of(values.get(index));
+    }
+
     private <T, U> U parallelProcessing(final int threads,
                                         final List<? extends T> values,
                                         final Function<T, U> extractor,
                                         final Supplier<U> identity,
                                         final BinaryOperator<U> operator) throws InterruptedException {
-        final int chunkSize = Math.max(values.size() / threads, 1);
-        final int threadsNum = Math.min(threads, values.size());
+        return parallelProcessing(threads, values, extractor, identity, operator, ShortCircuit.cancellable());
+    }
 
-        final List<Worker<T, U>> workerList = new ArrayList<>(threadsNum);
+    private <T, U> U parallelProcessing(final int threads,
+                                        final List<? extends T> values,
+                                        final Function<T, U> extractor,
+                                        final Supplier<U> identity,
+                                        final BinaryOperator<U> operator,
+                                        final ShortCircuit<U> shortCircuit) throws InterruptedException {
+        final BiFunction<U, T, U> processingFunc = (x, y) -> operator.apply(x, extractor.apply(y));
 
-        final List<List<? extends T>> chunks = new ArrayList<>(threadsNum);
+        return processChunk(this.<T, U>processChunks(threads, values, shortCircuit,
+                chunk -> processChunk(chunk, processingFunc, identity.get(), shortCircuit)),
+                operator, identity.get());
+    }
 
-        final int overflown = values.size() - threadsNum * chunkSize;
+    public <T, R> R parallelProcessing(final int threads,
+                                       final List<T> values,
+                                       final Function<T, R> function,
+                                       final Monoid<R> monoid) throws InterruptedException {
+        return parallelProcessing(threads, values, function, monoid::getIdentity, monoid.getOperator());
+    }
 
-        for (int i = 0, offset = 0; i < threadsNum; i++) {
-            chunks.add(values.subList(offset, offset += (i < overflown ? 1 : 0) + chunkSize));
+    /**
+     * Applies function to contiguous chunks of values in parallel. Function is expected to stop,
+     * once short circuit is cancelled or stopped at its values.
+     *
+     * @return results of chunks in order of chunks
+     */
+    private <T, U> List<U> processChunks(final int threads,
+                                         final List<? extends T> values,
+                                         final ShortCircuit<?> shortCircuit,
+                                         final Function<Chunk<T>, U> chunkFunc) throws InterruptedException {
+        if (forkJoinPool != null) {
+            return forkJoinProcessing(split(values, threads * LEAVES_PER_THREAD), shortCircuit, chunkFunc);
         }
 
-        final BiFunction<U, T, U> processingFunc = (x, y) -> operator.apply(x, extractor.apply(y));
+        final List<Chunk<T>> chunks = split(values, threads);
 
         if (parallelMapper == null) {
-            final Consumer<List<? extends T>> listConsumer = chunk -> {
-                final Worker<T, U> worker = new Worker<>(chunk,
-                        processingFunc, identity.get());
+            final List<Worker<T, U>> workerList = new ArrayList<>(chunks.size());
+            final List<Thread> threadList = new ArrayList<>(chunks.size());
 
-                final Thread thread = new Thread(worker);
+            final Consumer<Chunk<T>> listConsumer = chunk -> {
+                final Worker<T, U> worker = new Worker<>(chunk, chunkFunc);
+
+                final Thread thread = threadFactory.newThread(worker);
                 threadList.add(thread);
                 workerList.add(worker);
                 thread.start();
@@ -242,37 +475,85 @@ public class IterativeParallelism implements AdvancedIP {
 
             exceptionHandler.drop();
 
-            return processChunk(workerList.stream().map(Worker::getResult).collect(Collectors.toList()),
-                    operator, identity.get());
+            return workerList.stream().map(Worker::getResult).collect(Collectors.toList());
         }
 
-        return processChunk(parallelMapper.map(
-                list -> processChunk(list, processingFunc, identity.get()), chunks),
-                operator, identity.get());
+        return parallelMapper.map(chunkFunc, chunks);
     }
 
-    private <T, U> List<U> parallelProcessing(final int threads,
-                                              final List<? extends T> values,
-                                              final Function<? super T, Integer> size,
-                                              final Function<? super T, ? extends U> f) throws InterruptedException {
-        return parallelProcessing(threads, values,
-                x -> new ArrayList<>(Collections.nCopies(size.apply(x), f.apply(x))),
-                ArrayList::new, (x, y) -> {
-                    x.addAll(y);
-                    return x;
-                });
+    /**
+     * Splits values into at most {@code count} contiguous chunks, which sizes differ by at most one
+     */
+    private static <T> List<Chunk<T>> split(final List<? extends T> values, final int count) {
+        final int chunkSize = Math.max(values.size() / count, 1);
+        final int chunksNum = Math.min(count, values.size());
+
+        final List<Chunk<T>> chunks = new ArrayList<>(chunksNum);
+
+        final int overflown = values.size() - chunksNum * chunkSize;
+
+        for (int i = 0, offset = 0; i < chunksNum; i++) {
+            final int from = offset;
+            chunks.add(new Chunk<>(values.subList(from, offset += (i < overflown ? 1 : 0) + chunkSize), from));
+        }
+        return chunks;
     }
 
-    public <T, R> R parallelProcessing(final int threads,
-                                       final List<T> values,
-                                       final Function<T, R> function,
-                                       final Monoid<R> monoid) throws InterruptedException {
-        return parallelProcessing(threads, values, function, monoid::getIdentity, monoid.getOperator());
+    /**
+     * Workers of the pool are not interrupted with calling thread, so on interruption
+     * short circuit is cancelled, making running leaves stop and pending ones skip their chunks.
+     */
+    private <T, U> List<U> forkJoinProcessing(final List<Chunk<T>> chunks,
+                                              final ShortCircuit<?> shortCircuit,
+                                              final Function<Chunk<T>, U> chunkFunc) throws InterruptedException {
+        final Object[] results = new Object[chunks.size()];
+        final RangeTask<T> task = new RangeTask<>(chunks, 0, chunks.size(), chunkFunc, results, shortCircuit);
+
+        if (ForkJoinTask.getPool() == forkJoinPool) {
+            task.invoke();
+        } else {
+            try {
+                forkJoinPool.submit(task).get();
+            } catch (final InterruptedException e) {
+                shortCircuit.cancel();
+                task.cancel(true);
+                throw e;
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException exception) {
+                    throw exception;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        @SuppressWarnings("unchecked") final List<U> list = (List<U>) Arrays.asList(results);
+        return list;
     }
 
-    private <T, U> U processChunk(final List<? extends T> values,
-                                  final BiFunction<U, T, U> operator,
-                                  U result) {
+    private static <T, U> U processChunk(final Chunk<T> chunk,
+                                         final BiFunction<U, T, U> operator,
+                                         U result,
+                                         final ShortCircuit<U> shortCircuit) {
+        int index = chunk.offset();
+        for (final T value : chunk.values()) {
+            if (Thread.currentThread().isInterrupted() || shortCircuit.stopped(index)) {
+                break;
+            }
+            result = operator.apply(result, value);
+            if (shortCircuit.decided(result, index)) {
+                break;
+            }
+            index++;
+        }
+        return result;
+    }
+
+    private static <T, U> U processChunk(final List<? extends T> values,
+                                         final BiFunction<U, T, U> operator,
+                                         U result) {
         for (final T value : values) {
             if (Thread.currentThread().isInterrupted()) {
                 break;
@@ -282,26 +563,123 @@ public class IterativeParallelism implements AdvancedIP {
         return result;
     }
 
-    private final class Worker<T, U> implements Runnable {
-        private final BiFunction<U, T, U> operator;
-        private final List<? extends T> values;
+    private static final class Worker<T, U> implements Runnable {
+        private final Function<Chunk<T>, U> chunkFunc;
+        private final Chunk<T> chunk;
         private U result;
 
-        private Worker(final List<? extends T> values,
-                       final BiFunction<U, T, U> operator,
-                       final U identity) {
-            this.values = values;
-            this.operator = operator;
-            this.result = identity;
+        private Worker(final Chunk<T> chunk, final Function<Chunk<T>, U> chunkFunc) {
+            this.chunk = chunk;
+            this.chunkFunc = chunkFunc;
         }
 
         @Override
         public void run() {
-            result = processChunk(values, operator, result);
+            result = chunkFunc.apply(chunk);
         }
 
         private U getResult() {
             return result;
         }
     }
+
+    /**
+     * Processes range of chunks, forking its right half until a single chunk is left.
+     * Result of each chunk is stored at the index of chunk, so order is kept.
+     * Once short circuit is cancelled, nothing is forked, applied or stored any more.
+     */
+    private static final class RangeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Chunk<T>> chunks;
+        private final int from;
+        private final int to;
+        private final Function<Chunk<T>, ?> chunkFunc;
+        private final Object[] results;
+        private final ShortCircuit<?> shortCircuit;
+
+        private RangeTask(final List<Chunk<T>> chunks, final int from, final int to,
+                          final Function<Chunk<T>, ?> chunkFunc, final Object[] results,
+                          final ShortCircuit<?> shortCircuit) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.chunkFunc = chunkFunc;
+            this.results = results;
+            this.shortCircuit = shortCircuit;
+        }
+
+        @Override
+        protected void compute() {
+            if (shortCircuit.cancelled()) {
+                return;
+            }
+            if (to - from == 1) {
+                final Object result = chunkFunc.apply(chunks.get(from));
+                if (!shortCircuit.cancelled()) {
+                    results[from] = result;
+                }
+                return;
+            }
+            if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+                final RangeTask<T> right = new RangeTask<>(chunks, middle, to, chunkFunc, results, shortCircuit);
+                right.fork();
+                new RangeTask<>(chunks, from, middle, chunkFunc, results, shortCircuit).compute();
+                right.join();
+            }
+        }
+    }
+
+    /**
+     * Contiguous range of values starting at given index of the whole list
+     */
+    private record Chunk<T>(List<? extends T> values, int offset) {
+    }
+
+    /**
+     * Cooperative cancellation shared by all chunks of one call. Once a partial result is decisive,
+     * values after its index (or all values, if order does not matter) are not processed any more.
+     * Partial results of stopped chunks must still combine into the decisive one.
+     * Once the call is interrupted, short circuit is cancelled and no values are processed at all.
+     */
+    private static final class ShortCircuit<U> {
+        private final Predicate<? super U> decisive;
+        private final boolean ordered;
+        private final AtomicInteger bound = new AtomicInteger(Integer.MAX_VALUE);
+        private volatile boolean cancelled;
+
+        private ShortCircuit(final Predicate<? super U> decisive, final boolean ordered) {
+            this.decisive = decisive;
+            this.ordered = ordered;
+        }
+
+        /**
+         * Returns short circuit, which no result decides, but which may be cancelled
+         */
+        private static <U> ShortCircuit<U> cancellable() {
+            return new ShortCircuit<>(result -> false, false);
+        }
+
+        private boolean stopped(final int index) {
+            return cancelled || index > bound.get();
+        }
+
+        private boolean cancelled() {
+            return cancelled;
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+
+        private boolean decided(final U result, final int index) {
+            if (!decisive.test(result)) {
+                return false;
+            }
+            final int stop = ordered ? index : -1;
+            bound.accumulateAndGet(stop, Math::min);
+            return true;
+        }
+    }
 }
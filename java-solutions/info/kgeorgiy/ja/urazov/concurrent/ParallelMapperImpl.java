@@ -3,17 +3,38 @@ package info.kgeorgiy.ja.urazov.concurrent;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class ParallelMapperImpl implements ParallelMapper {
     private final static int QUEUE_SIZE_COEFFICIENT = 10;
+    /** Number of chunks per worker, so that workers finishing early have chunks left to take */
+    private final static int CHUNKS_PER_WORKER = 4;
 
     private final List<Thread> threadList;
-    private final BlockingQueue blockingQueue;
+    private final TaskQueue blockingQueue;
 
-    private boolean isClosed;
+    private volatile boolean isClosed;
+
+    /**
+     * Queue of tasks shared by worker threads
+     */
+    public enum QueueType {
+        /** Bounded queue guarded by a single monitor, which blocks submitters when it is full */
+        MONITOR,
+        /**
+         * Unbounded lock-free queue striped per worker: workers take tasks from their own stripe
+         * and steal from other stripes, parking only when all stripes are empty
+         */
+        STEALING
+    }
 
     /**
      * Creates an instance of {@code ParallelMapperImpl} with number of threads to process values
@@ -21,25 +42,39 @@ public class ParallelMapperImpl implements ParallelMapper {
      * @param threads number of threads to process values
      */
     public ParallelMapperImpl(final int threads) {
-        blockingQueue = new BlockingQueue(threads * QUEUE_SIZE_COEFFICIENT);
+        this(threads, QueueType.MONITOR);
+    }
 
-        final Runnable workerTemplate = () -> {
-            try {
-                while (!Thread.interrupted()) {
-                    blockingQueue.get().run();
-                }
-            } catch (InterruptedException ignored) {
-                // Do nothing
-            }
+    /**
+     * Creates an instance of {@code ParallelMapperImpl} with number of threads to process values
+     * and given type of task queue
+     *
+     * @param threads number of threads to process values
+     * @param queueType type of task queue
+     */
+    public ParallelMapperImpl(final int threads, final QueueType queueType) {
+        blockingQueue = switch (queueType) {
+            case MONITOR -> new BlockingQueue(threads * QUEUE_SIZE_COEFFICIENT);
+            case STEALING -> new StealingQueue(threads);
         };
 
-        threadList = Stream.generate(() -> new Thread(workerTemplate))
-                .limit(threads).peek(Thread::start).collect(Collectors.toList());
+        threadList = IntStream.range(0, threads)
+                .mapToObj(worker -> new Thread(() -> {
+                    try {
+                        while (!Thread.interrupted()) {
+                            blockingQueue.get(worker).run();
+                        }
+                    } catch (InterruptedException ignored) {
+                        // Do nothing
+                    }
+                }))
+                .peek(Thread::start).collect(Collectors.toList());
     }
 
     /**
      * Maps function {@code f} over specified {@code args}.
-     * Mapping for each element performs in parallel.
+     * Arguments are split into contiguous chunks, at most {@value #CHUNKS_PER_WORKER} per worker,
+     * which are mapped in parallel.
      *
      * @throws InterruptedException if calling thread was interrupted
      */
@@ -51,23 +86,28 @@ public class ParallelMapperImpl implements ParallelMapper {
             throw new IllegalStateException("Mapper has already been closed");
         }
 
-        final TaskProcessor taskProcessor = new TaskProcessor(args.size(), Thread.currentThread());
-        final List<R> result = new ArrayList<>(Collections.nCopies(args.size(), null));
+        final int chunks = Math.min(args.size(), Math.max(threadList.size(), 1) * CHUNKS_PER_WORKER);
+        final TaskProcessor taskProcessor = new TaskProcessor(chunks, Thread.currentThread());
+        final Object[] result = new Object[args.size()];
 
         try {
-            for (int i = 0; i < args.size(); i++) {
-                final int indexToSet = i;
+            for (int i = 0; i < chunks; i++) {
+                // Chunk sizes differ by at most one
+                final int from = (int) ((long) args.size() * i / chunks);
+                final int to = (int) ((long) args.size() * (i + 1) / chunks);
                 blockingQueue.set(() -> {
-                    if (!isClosed) {
+                    for (int indexToSet = from; indexToSet < to; indexToSet++) {
+                        if (isClosed) {
+                            taskProcessor.resetTasks();
+                            return;
+                        }
                         try {
-                            result.set(indexToSet, f.apply(args.get(indexToSet)));
+                            result[indexToSet] = f.apply(args.get(indexToSet));
                         } catch (final RuntimeException e) {
                             taskProcessor.processException(e);
                         }
-                        taskProcessor.markCompletion();
-                    } else {
-                        taskProcessor.resetTasks();
                     }
+                    taskProcessor.markCompletion();
                 });
             }
         } catch (final InterruptedException e) {
@@ -78,26 +118,33 @@ public class ParallelMapperImpl implements ParallelMapper {
 
         taskProcessor.waitCompletion();
 
-        return result;
+        @SuppressWarnings("unchecked") final List<R> mapped = (List<R>) Arrays.asList(result);
+        return mapped;
     }
 
     /** Stops all threads. All unfinished mappings leave in undefined state. */
     @Override
     public void close() {
-        if (!isClosed) {
-            isClosed = true;
-            synchronized (threadList) {
-                if (isClosed) {
-                    return;
-                }
-                threadList.forEach(Thread::interrupt);
+        synchronized (threadList) {
+            if (isClosed) {
+                return;
             }
-            ConcurrentUtils.joinResults(threadList);
-            blockingQueue.reset();
+            isClosed = true;
+            threadList.forEach(Thread::interrupt);
         }
+        ConcurrentUtils.joinResults(threadList);
+        blockingQueue.reset();
+    }
+
+    private interface TaskQueue {
+        void set(Runnable value) throws InterruptedException;
+
+        Runnable get(int worker) throws InterruptedException;
+
+        void reset();
     }
 
-    private static final class BlockingQueue {
+    private static final class BlockingQueue implements TaskQueue {
         private final int limit;
         // :NOTE: собирать эксепшены из пользовательской функции
         private final Deque<Runnable> deque;
@@ -107,7 +154,8 @@ public class ParallelMapperImpl implements ParallelMapper {
             deque = new ArrayDeque<>();
         }
 
-        private synchronized void set(Runnable value) throws InterruptedException {
+        @Override
+        public synchronized void set(Runnable value) throws InterruptedException {
             try {
                 while (deque.size() >= limit) {
                     wait();
@@ -120,7 +168,8 @@ public class ParallelMapperImpl implements ParallelMapper {
             notifyAll();
         }
 
-        private synchronized Runnable get() throws InterruptedException {
+        @Override
+        public synchronized Runnable get(final int worker) throws InterruptedException {
             while (deque.isEmpty()) {
                 wait();
             }
@@ -129,14 +178,77 @@ public class ParallelMapperImpl implements ParallelMapper {
             return runnable;
         }
 
-        private synchronized void reset() {
+        @Override
+        public synchronized void reset() {
             deque.forEach(Runnable::run);
         }
     }
 
+    private static final class StealingQueue implements TaskQueue {
+        private final List<Queue<Runnable>> stripes;
+        private final Deque<Thread> parked = new ConcurrentLinkedDeque<>();
+
+        private StealingQueue(final int workers) {
+            stripes = Stream.generate(ConcurrentLinkedQueue<Runnable>::new)
+                    .limit(Math.max(workers, 1)).collect(Collectors.toList());
+        }
+
+        @Override
+        public void set(final Runnable value) {
+            stripes.get(ThreadLocalRandom.current().nextInt(stripes.size())).add(value);
+            final Thread idle = parked.poll();
+            if (idle != null) {
+                LockSupport.unpark(idle);
+            }
+        }
+
+        @Override
+        public Runnable get(final int worker) throws InterruptedException {
+            final Thread current = Thread.currentThread();
+            while (true) {
+                Runnable task = poll(worker);
+                if (task != null) {
+                    return task;
+                }
+
+                // Publish itself before checking again, so that a task added meanwhile
+                // is either seen here or its submitter sees this thread to unpark
+                parked.push(current);
+                task = poll(worker);
+                if (task != null) {
+                    parked.remove(current);
+                    return task;
+                }
+                LockSupport.park(this);
+                parked.remove(current);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        }
+
+        private Runnable poll(final int worker) {
+            for (int i = 0; i < stripes.size(); i++) {
+                final Runnable task = stripes.get((worker + i) % stripes.size()).poll();
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void reset() {
+            stripes.forEach(stripe -> {
+                for (Runnable task = stripe.poll(); task != null; task = stripe.poll()) {
+                    task.run();
+                }
+            });
+        }
+    }
+
     private static final class TaskProcessor {
-        private int tasksNum;
-        private int counter;
+        private final AtomicInteger remaining;
         private boolean reset;
 
         private final ExceptionHandler<RuntimeException> exceptionHandler;
@@ -144,18 +256,19 @@ public class ParallelMapperImpl implements ParallelMapper {
 
         private TaskProcessor(final int tasksNum, final Thread coordinator) {
             exceptionHandler = new ExceptionHandler<>();
-            this.tasksNum = tasksNum;
+            this.remaining = new AtomicInteger(tasksNum);
             this.coordinator = coordinator;
         }
 
-        private void resetTasks() {
+        private synchronized void resetTasks() {
             if (!reset) {
                 reset = true;
-                tasksNum = 0;
                 coordinator.interrupt();
-                exceptionHandler.setExceptions(
-                        new IllegalStateException("Can't close mapper while mapping is not done")
-                );
+                synchronized (exceptionHandler) {
+                    exceptionHandler.setExceptions(
+                            new IllegalStateException("Can't close mapper while mapping is not done")
+                    );
+                }
                 notify();
             }
         }
@@ -166,10 +279,12 @@ public class ParallelMapperImpl implements ParallelMapper {
             }
         }
 
-        private synchronized void markCompletion() {
-            counter++;
-            if (completed()) {
-                notify();
+        private void markCompletion() {
+            // Only the last task takes the monitor
+            if (remaining.decrementAndGet() == 0) {
+                synchronized (this) {
+                    notify();
+                }
             }
         }
 
@@ -183,11 +298,13 @@ public class ParallelMapperImpl implements ParallelMapper {
                 throw e;
             }
 
-            exceptionHandler.drop();
+            synchronized (exceptionHandler) {
+                exceptionHandler.drop();
+            }
         }
 
         private boolean completed() {
-            return counter == tasksNum;
+            return reset || remaining.get() == 0;
         }
     }
 }
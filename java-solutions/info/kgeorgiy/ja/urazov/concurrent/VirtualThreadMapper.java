@@ -0,0 +1,134 @@
+package info.kgeorgiy.ja.urazov.concurrent;
+
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+public class VirtualThreadMapper implements ParallelMapper {
+    private final Semaphore permits;
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean isClosed;
+
+    /**
+     * Creates an instance of {@code VirtualThreadMapper}, which starts a virtual thread for each argument
+     * and runs at most {@code maxConcurrency} of them at the same time.
+     * Threads are made by {@link ConcurrentUtils#virtualThreadFactory()}
+     *
+     * @param maxConcurrency maximal number of arguments processed at the same time
+     */
+    public VirtualThreadMapper(final int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency should be positive: " + maxConcurrency);
+        }
+        permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Creates an instance of {@code VirtualThreadMapper} with unbounded concurrency. On runtimes
+     * without virtual threads, where each argument takes a platform thread,
+     * concurrency is bounded by number of available processors
+     */
+    public VirtualThreadMapper() {
+        this(ConcurrentUtils.supportsVirtualThreads()
+                ? Integer.MAX_VALUE
+                : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Maps function {@code f} over specified {@code args}.
+     * Each element is mapped in its own thread, calling thread waits for a permit before starting it.
+     *
+     * @throws InterruptedException if calling thread was interrupted
+     */
+    @Override
+    public <T, R> List<R> map(final Function<? super T, ? extends R> f, final List<? extends T> args)
+            throws InterruptedException {
+
+        if (isClosed) {
+            throw new IllegalStateException("Mapper has already been closed");
+        }
+
+        final Object[] result = new Object[args.size()];
+        final ExceptionHandler<RuntimeException> exceptionHandler = new ExceptionHandler<>();
+        final List<Thread> threadList = new ArrayList<>(args.size());
+
+        try {
+            for (int i = 0; i < args.size(); i++) {
+                final int indexToSet = i;
+                permits.acquire();
+                threadList.add(start(() -> {
+                    try {
+                        if (!isClosed) {
+                            result[indexToSet] = f.apply(args.get(indexToSet));
+                        }
+                    } catch (final RuntimeException e) {
+                        synchronized (exceptionHandler) {
+                            exceptionHandler.processException(e);
+                        }
+                    } finally {
+                        running.remove(Thread.currentThread());
+                        permits.release();
+                    }
+                }));
+            }
+        } catch (final InterruptedException | RuntimeException | Error e) {
+            threadList.forEach(Thread::interrupt);
+            ConcurrentUtils.joinResults(threadList);
+            throw e;
+        }
+
+        final ExceptionHandler<InterruptedException> interruptions = new ExceptionHandler<>();
+        ConcurrentUtils.joinResults(threadList, interruptions);
+        interruptions.drop();
+
+        if (isClosed) {
+            throw new IllegalStateException("Can't close mapper while mapping is not done");
+        }
+        exceptionHandler.drop();
+
+        @SuppressWarnings("unchecked") final List<R> mapped = (List<R>) Arrays.asList(result);
+        return mapped;
+    }
+
+    /**
+     * Makes and starts thread running given task, which releases acquired permit when done.
+     * If thread could not be made or started, permit is released at once.
+     *
+     * @param task task to run
+     * @return started thread
+     */
+    private Thread start(final Runnable task) {
+        Thread thread = null;
+        try {
+            thread = ConcurrentUtils.virtualThreadFactory().newThread(task);
+            if (thread == null) {
+                throw new IllegalStateException("Thread factory rejected task");
+            }
+            running.add(thread);
+            thread.start();
+            return thread;
+        } catch (final RuntimeException | Error e) {
+            if (thread != null) {
+                running.remove(thread);
+            }
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** Interrupts and joins all running threads. All unfinished mappings fail. */
+    @Override
+    public void close() {
+        isClosed = true;
+        final List<Thread> threadList = new ArrayList<>(running);
+        threadList.forEach(Thread::interrupt);
+        ConcurrentUtils.joinResults(threadList);
+    }
+}
@@ -0,0 +1,89 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer replacing characters by Unicode escape sequences {@code \}{@code uXXXX} as defined by
+ * {@link Implementor.Escaping} policy. Characters are written through in runs, escape sequences
+ * are built in a reused buffer, so writing allocates nothing.
+ *
+ * @author Timur Urazov
+ */
+final class EscapingWriter extends FilterWriter {
+    /**
+     * Hexadecimal digits
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Escaping policy
+     */
+    private final Implementor.Escaping escaping;
+
+    /**
+     * Buffer of escape sequence
+     */
+    private final char[] escape = {'\\', 'u', '0', '0', '0', '0'};
+
+    /**
+     * Creates writer
+     *
+     * @param out underlying writer
+     * @param escaping escaping policy
+     */
+    EscapingWriter(final Writer out, final Implementor.Escaping escaping) {
+        super(out);
+        this.escaping = escaping;
+    }
+
+    @Override
+    public void write(final int c) throws IOException {
+        if (escaping.escapes((char) c)) {
+            writeEscape((char) c);
+        } else {
+            out.write(c);
+        }
+    }
+
+    @Override
+    public void write(final char[] buffer, final int offset, final int length) throws IOException {
+        int start = offset;
+        for (int i = offset; i < offset + length; i++) {
+            if (escaping.escapes(buffer[i])) {
+                out.write(buffer, start, i - start);
+                writeEscape(buffer[i]);
+                start = i + 1;
+            }
+        }
+        out.write(buffer, start, offset + length - start);
+    }
+
+    @Override
+    public void write(final String string, final int offset, final int length) throws IOException {
+        int start = offset;
+        for (int i = offset; i < offset + length; i++) {
+            if (escaping.escapes(string.charAt(i))) {
+                out.write(string, start, i - start);
+                writeEscape(string.charAt(i));
+                start = i + 1;
+            }
+        }
+        out.write(string, start, offset + length - start);
+    }
+
+    /**
+     * Writes escape sequence of given character
+     *
+     * @param c character to be escaped
+     * @throws IOException if underlying writer threw it
+     */
+    private void writeEscape(final char c) throws IOException {
+        escape[2] = HEX[(c >> 12) & 0xf];
+        escape[3] = HEX[(c >> 8) & 0xf];
+        escape[4] = HEX[(c >> 4) & 0xf];
+        escape[5] = HEX[c & 0xf];
+        out.write(escape, 0, escape.length);
+    }
+}
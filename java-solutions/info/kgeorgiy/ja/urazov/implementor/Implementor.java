@@ -1,23 +1,25 @@
 package info.kgeorgiy.ja.urazov.implementor;
 
+import info.kgeorgiy.ja.urazov.concurrent.ParallelMapperImpl;
 import info.kgeorgiy.java.advanced.implementor.ImplerException;
 import info.kgeorgiy.java.advanced.implementor.JarImpler;
 
-import javax.tools.JavaCompiler;
-import javax.tools.ToolProvider;
 import java.io.*;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.*;
-import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -26,6 +28,110 @@ import java.util.stream.Stream;
  */
 
 public class Implementor implements JarImpler {
+    /**
+     * Way of producing class files of implementations
+     */
+    public enum Backend {
+        /**
+         * Class files are emitted directly, falling back to compiler for classes
+         * it would reject
+         */
+        BYTECODE,
+        /**
+         * Generated sources are compiled by system java compiler
+         */
+        JAVAC
+    }
+
+    /**
+     * Policy of replacing characters of written sources by Unicode escape sequences
+     */
+    public enum Escaping {
+        /**
+         * Every character is escaped
+         */
+        ALL,
+        /**
+         * Only non-ASCII characters are escaped, so that source does not depend on encoding
+         */
+        NON_ASCII,
+        /**
+         * No character is escaped
+         */
+        NONE;
+
+        /**
+         * Checks whether character is escaped by this policy
+         *
+         * @param c character
+         * @return {@code true} if character is escaped
+         */
+        boolean escapes(final char c) {
+            return this == ALL || this == NON_ASCII && c >= 0x80;
+        }
+    }
+
+    /**
+     * Cache of generated sources and compiled classes
+     */
+    private final ImplementorCache cache;
+
+    /**
+     * Way of producing class files
+     */
+    private final Backend backend;
+
+    /**
+     * Compiler shared by compilations, created on first use
+     */
+    private ImplementorCompiler compiler;
+
+    /**
+     * Implementations defined by {@link #implementClass(Class)}, memoized per implemented type token.
+     * Each implementation is kept with its token rather than by this instance, so neither of them
+     * nor their class loaders are kept reachable by this instance.
+     */
+    private final ClassValue<Class<?>> loaded = new ClassValue<>() {
+        @Override
+        protected Class<?> computeValue(final Class<?> token) {
+            try {
+                return defineClass(token, getClassFiles(List.of(token)).get(token));
+            } catch (final ImplerException e) {
+                throw new DefinitionException(e);
+            }
+        }
+    };
+
+    /**
+     * Creates an instance of {@code Implementor}, which caches generated sources and compiled
+     * classes in memory
+     */
+    public Implementor() {
+        this(null);
+    }
+
+    /**
+     * Creates an instance of {@code Implementor}, which caches generated sources and compiled
+     * classes in memory and in given directory, so that the cache is shared between runs
+     *
+     * @param cacheDirectory directory of on-disk cache or {@code null} to cache in memory only
+     */
+    public Implementor(final Path cacheDirectory) {
+        this(cacheDirectory, Backend.BYTECODE);
+    }
+
+    /**
+     * Creates an instance of {@code Implementor} as defined by {@link #Implementor(Path)},
+     * which produces class files by given backend
+     *
+     * @param cacheDirectory directory of on-disk cache or {@code null} to cache in memory only
+     * @param backend way of producing class files
+     */
+    public Implementor(final Path cacheDirectory, final Backend backend) {
+        cache = new ImplementorCache(cacheDirectory);
+        this.backend = Objects.requireNonNull(backend);
+    }
+
     /**
      * Returns simple name of class including no package name
      *
@@ -163,33 +269,40 @@ public class Implementor implements JarImpler {
     }
 
     /**
-     * Generates implementation of class defined by type token and writes it to writer as Unicode
-     * escaped sequence
+     * Generates implementation of class defined by type token
      *
-     * @param writer writer where generated code is written to
      * @param token type token representing class to implement
      * @param validConstructors non-private constructors
-     * @throws IOException if error occurs while generated code is being written to output file
+     * @param methods abstract methods to be implemented
+     * @return source code of implementation
      */
-    private static void generateAndWrite(final BufferedWriter writer, final Class<?> token,
-                                         final List<Constructor<?>> validConstructors)
-            throws IOException {
-        final StringBuilder impl = new StringBuilder();
+    private static String generateSource(final Class<?> token,
+                                         final List<Constructor<?>> validConstructors,
+                                         final List<Method> methods) {
+        return generateParts(token, validConstructors, methods).collect(Collectors.joining());
+    }
+
+    /**
+     * Lazily generates consecutive parts of implementation of class defined by type token,
+     * each constructor and method being generated when its part is consumed
+     *
+     * @param token type token representing class to implement
+     * @param validConstructors non-private constructors
+     * @param methods abstract methods to be implemented
+     * @return parts of source code of implementation
+     */
+    private static Stream<String> generateParts(final Class<?> token,
+                                                final List<Constructor<?>> validConstructors,
+                                                final List<Method> methods) {
         final String packageName = token.getPackageName();
-        if (!packageName.isEmpty()) {
-            impl.append(Decoration.packageDeclaration(packageName));
-        }
-        impl.append(Decoration.classDeclaration(token));
-        if (!token.isInterface()) {
-            impl.append(generateConstructors(validConstructors));
-        }
-        impl.append(Decoration.LINE_SEP);
-        impl.append(generateMethods(token));
-        impl.append(Decoration.BLOCK_END);
-        writer.write(impl.toString()
-                .chars()
-                .mapToObj(ch -> String.format("\\u%04x", ch))
-                .collect(Collectors.joining()));
+        return Stream.of(
+                Stream.of(packageName.isEmpty() ? "" : Decoration.packageDeclaration(packageName),
+                        Decoration.classDeclaration(token)),
+                token.isInterface() ? Stream.<String>empty() : generateConstructors(validConstructors),
+                Stream.of(Decoration.LINE_SEP),
+                generateMethods(methods),
+                Stream.of(Decoration.BLOCK_END)
+        ).flatMap(Function.identity());
     }
 
     /**
@@ -209,46 +322,84 @@ public class Implementor implements JarImpler {
     }
 
     /**
-     * Retrieves wrapped methods determined by {@link #convertMethods(Method[])} by recursively
-     * traversing ancestors in tree of extension
-     *
-     * @param token type token which ancestors to traverse
-     * @return wrapped methods of this class and its ancestors determined by
-     * {@link #convertMethods(Method[])}
+     * Retrieves wrapped methods determined by {@link #convertMethods(Method[])} of class and,
+     * through memoized value of its superclass, of all its ancestors in tree of extension.
+     * Methods of subclasses take precedence over methods with the same signature of superclasses.
+     * Each class is introspected once, the result is shared by all its descendants and threads.
      */
-    private static Set<MethodToGenerate> retrieveMethods(Class<?> token) {
-        final Set<MethodToGenerate> methods = convertMethods(token.getDeclaredMethods());
-        token = token.getSuperclass();
-        if (token != null) {
-            methods.addAll(retrieveMethods(token));
+    private static final ClassValue<Set<MethodToGenerate>> HIERARCHY_METHODS = new ClassValue<>() {
+        @Override
+        protected Set<MethodToGenerate> computeValue(final Class<?> token) {
+            final Set<MethodToGenerate> methods = convertMethods(token.getDeclaredMethods());
+            final Class<?> superclass = token.getSuperclass();
+            if (superclass != null) {
+                methods.addAll(HIERARCHY_METHODS.get(superclass));
+            }
+            return Collections.unmodifiableSet(methods);
         }
-        return methods;
-    }
+    };
+
+    /**
+     * Memoized public methods of class or interface, including inherited ones, wrapped to
+     * {@link MethodToGenerate}
+     */
+    private static final ClassValue<Set<MethodToGenerate>> PUBLIC_METHODS = new ClassValue<>() {
+        @Override
+        protected Set<MethodToGenerate> computeValue(final Class<?> token) {
+            final Set<MethodToGenerate> methods = collectMapped(
+                    token.getMethods(),
+                    MethodToGenerate::new,
+                    Collectors.toCollection(HashSet::new));
+            return Collections.unmodifiableSet(methods);
+        }
+    };
 
     /**
      * Retrieve public wrapped to {@link MethodToGenerate} methods of class
      * or interface ancestors and, in case of class, all wrapped methods defined by
-     * {@link #retrieveMethods(Class)}, leave abstract methods and generate methods as
-     * defined by {@link #generateMethod(Method)}
+     * {@link #HIERARCHY_METHODS}, and leave abstract methods
      *
-     * @param token token which methods to generate
-     * @return string representation of code block containing all generated methods
+     * @param token token which methods to implement
+     * @return abstract methods to be implemented
      */
-    private static String generateMethods(final Class<?> token) {
-        final Set<MethodToGenerate> methods = collectMapped(
-                token.getMethods(),
-                MethodToGenerate::new,
-                Collectors.toCollection(HashSet::new));
+    private static List<Method> getAbstractMethods(final Class<?> token) {
+        final Set<MethodToGenerate> methods = new HashSet<>(PUBLIC_METHODS.get(token));
 
         if (!token.isInterface()) {
-            methods.addAll(retrieveMethods(token));
+            methods.addAll(HIERARCHY_METHODS.get(token));
         }
 
         return collectFilteredAndMapped(
                 methods.stream().map(MethodToGenerate::method),
                 method -> Modifier.isAbstract(method.getModifiers()),
-                Implementor::generateMethod,
-                Collectors.joining(Decoration.LINE_SEP));
+                Function.identity(),
+                Collectors.toList());
+    }
+
+    /**
+     * Generate methods defined by {@link #getAbstractMethods(Class)} as defined by
+     * {@link #generateMethod(Method)}
+     *
+     * @param methods methods to generate
+     * @return lazily generated methods separated by line separators
+     */
+    private static Stream<String> generateMethods(final List<Method> methods) {
+        return separated(methods, Implementor::generateMethod);
+    }
+
+    /**
+     * Lazily applies generating function to given elements, prepending line separator
+     * to every result but the first
+     *
+     * @param elements elements to generate code of
+     * @param generator generating function
+     * @param <T> type of elements
+     * @return generated code of elements
+     */
+    private static <T> Stream<String> separated(final List<T> elements, final Function<T, String> generator) {
+        return IntStream.range(0, elements.size())
+                .mapToObj(i -> i == 0 ? generator.apply(elements.get(i))
+                        : Decoration.LINE_SEP + generator.apply(elements.get(i)));
     }
 
     /**
@@ -326,11 +477,10 @@ public class Implementor implements JarImpler {
      * given constructors and then joining them
      *
      * @param constructors super constructors to be called in generated constructors
-     * @return string representation of generated constructors
+     * @return lazily generated constructors separated by line separators
      */
-    private static String generateConstructors(final List<Constructor<?>> constructors) {
-        return String.join(Decoration.LINE_SEP, collectMapped(constructors.stream(),
-                Implementor::generateConstructor, Collectors.toList()));
+    private static Stream<String> generateConstructors(final List<Constructor<?>> constructors) {
+        return separated(constructors, Implementor::generateConstructor);
     }
 
     /**
@@ -448,21 +598,118 @@ public class Implementor implements JarImpler {
     }
 
     /**
+     * Returns source code of implementation of given token, generating it on cache miss
+     *
+     * @param token type token
+     * @return source code of implementation
+     * @throws ImplerException if some exceptions occurred in {@link #checkToken(Class)} function
+     */
+    private String getSource(final Class<?> token) throws ImplerException {
+        return cache.source(token, () -> {
+            final List<Constructor<?>> constructors = ImplementorEvent.record(ImplementorEvent.REFLECTION,
+                    token, 1, () -> checkToken(token));
+            final List<Method> methods = ImplementorEvent.record(ImplementorEvent.REFLECTION,
+                    token, 1, () -> getAbstractMethods(token));
+            return ImplementorEvent.record(ImplementorEvent.GENERATION, token, 1,
+                    () -> generateSource(token, constructors, methods));
+        });
+    }
+
+    /**
+     * Returns class file of implementation of given token taken from cache or, for
+     * {@link Backend#BYTECODE} backend, generated directly. Types not supported by bytecode backend
+     * are looked up among cached class files of {@link Backend#JAVAC}.
+     *
+     * @param token type token
+     * @return class file or {@code null} if source of implementation is to be compiled
+     * @throws ImplerException if some exceptions occurred in {@link #checkToken(Class)} function
+     */
+    private byte[] getClassFile(final Class<?> token) throws ImplerException {
+        byte[] classFile = cache.getClassFile(token, backend);
+        if (classFile == null && backend == Backend.BYTECODE) {
+            final List<Constructor<?>> constructors = ImplementorEvent.record(ImplementorEvent.REFLECTION,
+                    token, 1, () -> checkToken(token));
+            final List<Method> methods = ImplementorEvent.record(ImplementorEvent.REFLECTION,
+                    token, 1, () -> getAbstractMethods(token));
+            if (ImplementorBytecode.isSupported(token, constructors, methods)) {
+                classFile = ImplementorEvent.record(ImplementorEvent.COMPILATION, token, 1,
+                        () -> ImplementorBytecode.generate(token, getFullImplName(token), constructors, methods));
+                cache.putClassFile(token, backend, classFile);
+            } else {
+                classFile = cache.getClassFile(token, Backend.JAVAC);
+            }
+        }
+        return classFile;
+    }
+
+    /**
+     * Generated source code is taken from cache if the same class has been already implemented.
+     * Otherwise, it is written as it is generated and then cached.
+     * Non-ASCII characters are written as Unicode escape sequences.
+     *
      * @throws ImplerException if some exceptions occurred in {@link #checkToken(Class)} function,
      * if output file can not be opened or created or error occurred while writing to output file
      */
     @Override
     public void implement(final Class<?> token, final Path root) throws ImplerException {
-        final List<Constructor<?>> validConstructors = checkToken(token);
+        implement(token, root, Escaping.NON_ASCII);
+    }
+
+    /**
+     * Produces code implementing class or interface specified by provided token as defined by
+     * {@link #implement(Class, Path)}, escaping characters as defined by given policy
+     *
+     * @param token type token to create implementation for
+     * @param root root directory
+     * @param escaping policy of escaping characters of source
+     * @throws ImplerException if some exceptions occurred in {@link #checkToken(Class)} function,
+     * if output file can not be opened or created or error occurred while writing to output file
+     */
+    public void implement(final Class<?> token, final Path root, final Escaping escaping)
+            throws ImplerException {
+        final String source = cache.getSource(token);
+        if (source != null) {
+            final Path outputFilePath = createOutputFile(token, root);
+            ImplementorEvent.record(ImplementorEvent.ESCAPING, token, 1, () -> {
+                writeSource(outputFilePath, escaping, Stream.of(source));
+                return null;
+            });
+            return;
+        }
+
+        final List<Constructor<?>> constructors = ImplementorEvent.record(ImplementorEvent.REFLECTION,
+                token, 1, () -> checkToken(token));
+        final List<Method> methods = ImplementorEvent.record(ImplementorEvent.REFLECTION,
+                token, 1, () -> getAbstractMethods(token));
         final Path outputFilePath = createOutputFile(token, root);
-        try (BufferedWriter writer = Files.newBufferedWriter(outputFilePath)) {
+        final StringBuilder generated = new StringBuilder();
+        ImplementorEvent.record(ImplementorEvent.GENERATION, token, 1, () -> {
+            writeSource(outputFilePath, escaping, generateParts(token, constructors, methods).peek(generated::append));
+            return null;
+        });
+        cache.putSource(token, generated.toString());
+    }
+
+    /**
+     * Writes parts of source to file as they are produced, escaping characters as defined by given policy
+     *
+     * @param file output file
+     * @param escaping policy of escaping characters of source
+     * @param parts parts of source
+     * @throws ImplerException if output file can not be opened or created or error occurred while writing to it
+     */
+    private static void writeSource(final Path file, final Escaping escaping, final Stream<String> parts)
+            throws ImplerException {
+        try (Writer writer = new EscapingWriter(Files.newBufferedWriter(file), escaping)) {
             try {
-                generateAndWrite(writer, token, validConstructors);
+                for (final String part : (Iterable<String>) parts::iterator) {
+                    writer.write(part);
+                }
             } catch (IOException e) {
-                throw new ImplerException("Error while writing to output file: '" + outputFilePath + "'.");
+                throw new ImplerException("Error while writing to output file: '" + file + "'.");
             }
         }  catch (IOException e) {
-            throw new ImplerException("Cannot open or create output file: '" + outputFilePath + "'.");
+            throw new ImplerException("Cannot open or create output file: '" + file + "'.");
         }
     }
 
@@ -471,54 +718,131 @@ public class Implementor implements JarImpler {
      *
      * @param file to be compiled
      * @param token type token for code source
-     * @throws ImplerException if compiler could not be found, if exit code of compiled
-     * does not equal to zero or if error occurred parsing uri of classpath
+     * @throws ImplerException if compiler could not be found, if compilation failed
+     * or if error occurred parsing uri of classpath
      */
     public static void compileFile(final String file, Class<?> token) throws ImplerException {
-        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        new ImplementorCompiler().compile(List.of(Path.of(file)), List.of(token), null);
+    }
+
+    /**
+     * Returns compiler shared by compilations of this instance, creating it on first use
+     *
+     * @return compiler
+     * @throws ImplerException if compiler could not be found
+     */
+    private synchronized ImplementorCompiler getCompiler() throws ImplerException {
         if (compiler == null) {
-            throw new ImplerException("Could not find java compiler, include tools.jar to classpath");
+            compiler = new ImplementorCompiler();
         }
-        try {
-            final String classpath = Path.of(token.getProtectionDomain()
-                    .getCodeSource().getLocation().toURI()).toString();
-            final String[] args = new String[] {"-cp", classpath, file};
-            final int exitCode = compiler.run(null, null, null, args);
-            if (exitCode != 0) {
-                throw new ImplerException("Compilation error, exit code = " + exitCode);
-            }
-        } catch (URISyntaxException e) {
-            throw new ImplerException("Error parsing uri of classpath");
+        return compiler;
+    }
+
+    /**
+     * Produces code implementing classes or interfaces specified by provided tokens
+     * as defined by {@link #implement(Class, Path)}
+     *
+     * @param tokens type tokens to create implementation for
+     * @param root root directory
+     * @throws ImplerException if implementation of any token can not be generated
+     */
+    public void implementAll(final Collection<Class<?>> tokens, final Path root) throws ImplerException {
+        for (final Class<?> token : tokens) {
+            implement(token, root);
         }
     }
 
     /**
-     * @throws ImplerException if error occurred while copying classfile to jarfile, while
-     * making outputstream from jarfile or while making {@link JarOutputStream} from jarfile and
-     * manifest
+     * Produces single {@code .jar} file implementing classes or interfaces specified by provided
+     * tokens. Classes missing in cache are compiled in memory by a single compiler invocation,
+     * so no temporary files are created.
+     *
+     * @param tokens type tokens to create implementation for
+     * @param jarFile target {@code .jar} file
+     * @throws ImplerException if implementation of any token can not be generated or compiled,
+     * or if error occurred while writing jarfile
      */
-    @Override
-    public void implementJar(final Class<?> token, final Path jarFile) throws ImplerException {
-        final Path root = jarFile.getParent();
-        implement(token, root);
+    public void implementJarAll(final Collection<Class<?>> tokens, final Path jarFile) throws ImplerException {
+        writeJar(jarFile, getClassFiles(tokens));
+    }
 
-        final String compiledClass = getFullName(root, token).toString();
+    /**
+     * Returns class files of implementations of given tokens, taken from cache, generated
+     * directly by {@link Backend#BYTECODE} backend or compiled in memory by a single compiler
+     * invocation
+     *
+     * @param tokens type tokens to create implementation for
+     * @return class files by implemented type tokens
+     * @throws ImplerException if implementation of any token can not be generated or compiled
+     */
+    private Map<Class<?>, byte[]> getClassFiles(final Collection<Class<?>> tokens) throws ImplerException {
+        final Map<Class<?>, byte[]> classFiles = new LinkedHashMap<>();
+        final Map<String, String> missing = new LinkedHashMap<>();
+        for (final Class<?> token : tokens) {
+            final byte[] classFile = getClassFile(token);
+            if (classFile == null) {
+                missing.put(getFullImplName(token), getSource(token));
+            }
+            classFiles.put(token, classFile);
+        }
+
+        if (!missing.isEmpty()) {
+            final Map<String, byte[]> compiled = ImplementorEvent.record(ImplementorEvent.COMPILATION,
+                    null, missing.size(), () -> getCompiler().compile(missing, tokens));
+            for (final Map.Entry<Class<?>, byte[]> entry : classFiles.entrySet()) {
+                if (entry.getValue() == null) {
+                    final byte[] classFile = compiled.get(getFullImplName(entry.getKey()));
+                    if (classFile == null) {
+                        throw new ImplerException("Compiler produced no classfile for " + entry.getKey().getName());
+                    }
+                    cache.putClassFile(entry.getKey(), Backend.JAVAC, classFile);
+                    entry.setValue(classFile);
+                }
+            }
+        }
+        return classFiles;
+    }
 
-        compileFile(compiledClass, token);
+    /**
+     * Writes class files of implementations to jarfile, creating its parent directory if necessary
+     *
+     * @param jarFile target {@code .jar} file
+     * @param classFiles class files by implemented type tokens
+     * @throws ImplerException if parent directory can not be created, if error occurred while
+     * copying classfile to jarfile, while making outputstream from jarfile or while making
+     * {@link JarOutputStream} from jarfile and manifest
+     */
+    private static void writeJar(final Path jarFile, final Map<Class<?>, byte[]> classFiles)
+            throws ImplerException {
+        ImplementorEvent.record(ImplementorEvent.JAR, null, classFiles.size(), () -> {
+            writeJarEntries(jarFile, classFiles);
+            return null;
+        });
+    }
 
+    /**
+     * Writes class files of implementations to jarfile as defined by {@link #writeJar(Path, Map)}
+     *
+     * @param jarFile target {@code .jar} file
+     * @param classFiles class files by implemented type tokens
+     * @throws ImplerException if jarfile can not be written
+     */
+    private static void writeJarEntries(final Path jarFile, final Map<Class<?>, byte[]> classFiles)
+            throws ImplerException {
         final Manifest manifest = new Manifest();
         manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
 
+        createOutputFileParentDir(jarFile);
         try (final OutputStream outputStream = Files.newOutputStream(jarFile)) {
             try (final JarOutputStream jarOutputStream = new JarOutputStream(outputStream, manifest)) {
-                final String jarClass = getFullImplName(token, '/', Decoration.CLASS_FILE);
-                final JarEntry jarEntry = new JarEntry(jarClass);
-                jarOutputStream.putNextEntry(jarEntry);
-                try {
-                    Files.copy(Path.of(compiledClass.replace(Decoration.JAVA_FILE,
-                            Decoration.CLASS_FILE)), jarOutputStream);
-                } catch (IOException e) {
-                    throw new ImplerException("Error while copying classfile to jarfile");
+                for (final Map.Entry<Class<?>, byte[]> classFile : classFiles.entrySet()) {
+                    final String jarClass = getFullImplName(classFile.getKey(), '/', Decoration.CLASS_FILE);
+                    jarOutputStream.putNextEntry(new JarEntry(jarClass));
+                    try {
+                        jarOutputStream.write(classFile.getValue());
+                    } catch (IOException e) {
+                        throw new ImplerException("Error while copying classfile to jarfile");
+                    }
                 }
             } catch (IOException e) {
                 throw new ImplerException("Error while making outputstream from jarfile");
@@ -528,14 +852,444 @@ public class Implementor implements JarImpler {
         }
     }
 
+    /**
+     * Name of jar entry listing cache keys of implemented types, as defined by
+     * {@link #implementJarIncremental(Collection, Path)}
+     */
+    private static final String HASHES_ENTRY = "META-INF/implementor.hashes";
+
+    /**
+     * Produces {@code .jar} file implementing classes or interfaces specified by provided tokens,
+     * reusing previous content of the jarfile. Jarfile keeps {@value #HASHES_ENTRY} entry, which
+     * maps each class file to fingerprint of bytecode of the implemented type and its ancestors.
+     * Entries which fingerprints did not change are copied from the previous jarfile without
+     * recompression, only changed and new types are generated or compiled, entries of types
+     * not given any more are dropped. Jarfile is replaced atomically.
+     *
+     * @param tokens type tokens to create implementation for
+     * @param jarFile target {@code .jar} file, which may not exist
+     * @return tokens which entries were generated anew
+     * @throws ImplerException if implementation of any changed token can not be generated or
+     * compiled, or if error occurred while writing jarfile
+     */
+    public List<Class<?>> implementJarIncremental(final Collection<Class<?>> tokens, final Path jarFile)
+            throws ImplerException {
+        Map<String, ImplementorJar.Entry> previous = Map.of();
+        final Map<String, String> previousHashes = new HashMap<>();
+        if (Files.exists(jarFile)) {
+            try {
+                previous = ImplementorJar.read(jarFile);
+                final ImplementorJar.Entry hashes = previous.get(HASHES_ENTRY);
+                if (hashes != null) {
+                    new String(hashes.content(), StandardCharsets.UTF_8).lines()
+                            .map(line -> line.split(" ", 2))
+                            .filter(parts -> parts.length == 2)
+                            .forEach(parts -> previousHashes.put(parts[1], parts[0]));
+                }
+            } catch (IOException e) {
+                // Jarfile is rebuilt from scratch
+                previous = Map.of();
+                previousHashes.clear();
+            }
+        }
+
+        final Map<String, ImplementorJar.Entry> entries = new LinkedHashMap<>();
+        final StringBuilder hashes = new StringBuilder();
+        final List<Class<?>> changed = new ArrayList<>();
+        for (final Class<?> token : tokens) {
+            final String name = getFullImplName(token, '/', Decoration.CLASS_FILE);
+            final String key = ImplementorCache.key(token, backend);
+            hashes.append(key).append(' ').append(name).append('\n');
+            if (ImplementorCache.isPersistent(token) && key.equals(previousHashes.get(name))
+                    && previous.containsKey(name)) {
+                entries.put(name, previous.get(name));
+            } else {
+                changed.add(token);
+                entries.put(name, null);
+            }
+        }
+        for (final Map.Entry<Class<?>, byte[]> classFile : getClassFiles(changed).entrySet()) {
+            final String name = getFullImplName(classFile.getKey(), '/', Decoration.CLASS_FILE);
+            entries.put(name, ImplementorJar.deflate(name, classFile.getValue()));
+        }
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        final ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+        try {
+            manifest.write(manifestBytes);
+        } catch (IOException e) {
+            throw new ImplerException("Error while writing manifest");
+        }
+        final List<ImplementorJar.Entry> jar = new ArrayList<>();
+        jar.add(ImplementorJar.deflate(JarFile.MANIFEST_NAME, manifestBytes.toByteArray()));
+        jar.add(ImplementorJar.deflate(HASHES_ENTRY, hashes.toString().getBytes(StandardCharsets.UTF_8)));
+        jar.addAll(entries.values());
+
+        createOutputFileParentDir(jarFile.toAbsolutePath());
+        ImplementorEvent.record(ImplementorEvent.JAR, null, jar.size(), () -> {
+            try {
+                final Path temp = Files.createTempFile(jarFile.toAbsolutePath().getParent(), "implementor", ".jar");
+                try {
+                    try (final OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                        ImplementorJar.write(outputStream, jar);
+                    }
+                    Files.move(temp, jarFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException e) {
+                throw new ImplerException("Error while writing jarfile. " + e.getMessage());
+            }
+            return null;
+        });
+        return changed;
+    }
+
+    /**
+     * Compiled class is taken from cache if the same class has been already compiled, in which
+     * case neither source is generated nor compiler is run
+     *
+     * @throws ImplerException if error occurred while copying classfile to jarfile, while
+     * making outputstream from jarfile or while making {@link JarOutputStream} from jarfile and
+     * manifest
+     */
+    @Override
+    public void implementJar(final Class<?> token, final Path jarFile) throws ImplerException {
+        implementJarAll(List.of(token), jarFile);
+    }
+
+    /**
+     * Outcome of implementation of a single type by
+     * {@link #implementJarParallel(List, Path, int)}
+     *
+     * @param token implemented type token
+     * @param nanos time spent on generation and share of batch compilation, in nanoseconds
+     * @param error error message or {@code null} if implementation is written to jarfile
+     */
+    public record Report(Class<?> token, long nanos, String error) {
+    }
+
+    /**
+     * Class file or source of implementation of a single type
+     *
+     * @param token implemented type token
+     * @param classFile class file or {@code null} if source is to be compiled or error occurred
+     * @param source source to be compiled or {@code null}
+     * @param nanos time spent, in nanoseconds
+     * @param error error message or {@code null}
+     */
+    private record Generated(Class<?> token, byte[] classFile, String source, long nanos, String error) {
+    }
+
+    /**
+     * Number of sources compiled by single compiler invocation
+     * in {@link #implementJarParallel(List, Path, int)}
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Produces single {@code .jar} file implementing all given types which can be implemented.
+     * Reflection and generation run in parallel on given number of threads, sources left to
+     * compiler are compiled in batches of {@value #BATCH_SIZE}. Types which can not be
+     * implemented are reported rather than failing whole jarfile.
+     *
+     * @param tokens type tokens to create implementation for, for example found by
+     * {@link ImplementorScanner}
+     * @param jarFile target {@code .jar} file
+     * @param threads number of threads
+     * @return reports in order of tokens
+     * @throws ImplerException if jarfile can not be written or if calling thread was interrupted
+     */
+    public List<Report> implementJarParallel(final List<Class<?>> tokens, final Path jarFile,
+                                             final int threads) throws ImplerException {
+        final List<Generated> generated;
+        final ParallelMapperImpl mapper = new ParallelMapperImpl(threads);
+        try {
+            generated = new ArrayList<>(mapper.map(this::generate, tokens));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImplerException("Interrupted while generating implementations");
+        } finally {
+            mapper.close();
+        }
+
+        final List<Integer> sources = new ArrayList<>();
+        for (int i = 0; i < generated.size(); i++) {
+            if (generated.get(i).source() != null) {
+                sources.add(i);
+            }
+        }
+        for (int from = 0; from < sources.size(); from += BATCH_SIZE) {
+            compileBatch(generated, sources.subList(from, Math.min(from + BATCH_SIZE, sources.size())));
+        }
+
+        final Map<Class<?>, byte[]> classFiles = new LinkedHashMap<>();
+        final Set<String> names = new HashSet<>();
+        final List<Report> reports = new ArrayList<>();
+        for (final Generated result : generated) {
+            String error = result.error();
+            if (error == null && !names.add(getFullImplName(result.token()))) {
+                error = "Duplicate implementation name " + getFullImplName(result.token());
+            }
+            if (error == null) {
+                classFiles.put(result.token(), result.classFile());
+            }
+            reports.add(new Report(result.token(), result.nanos(), error));
+        }
+        writeJar(jarFile, classFiles);
+        return reports;
+    }
+
+    /**
+     * Produces class file of implementation of given token, taken from cache or generated
+     * directly, or source to be compiled. Errors are captured rather than thrown.
+     *
+     * @param token type token to create implementation for
+     * @return class file or source
+     */
+    private Generated generate(final Class<?> token) {
+        final long start = System.nanoTime();
+        try {
+            final byte[] classFile = getClassFile(token);
+            final String source = classFile == null ? getSource(token) : null;
+            return new Generated(token, classFile, source, System.nanoTime() - start, null);
+        } catch (ImplerException | RuntimeException | LinkageError e) {
+            return new Generated(token, null, null, System.nanoTime() - start, e.toString());
+        }
+    }
+
+    /**
+     * Compiles sources of given generated implementations by single compiler invocation,
+     * replacing sources by class files. If compilation fails, halves of the batch are compiled
+     * recursively to find failing sources, so that a few failing sources among many cost a few
+     * compiler invocations per failing source rather than one per source. Compilation time
+     * is shared equally between implementations.
+     *
+     * @param generated generated implementations
+     * @param batch indices of generated implementations to be compiled
+     */
+    private void compileBatch(final List<Generated> generated, final List<Integer> batch) {
+        final long start = System.nanoTime();
+        final Map<String, String> sources = new LinkedHashMap<>();
+        final List<Class<?>> tokens = new ArrayList<>();
+        for (final int index : batch) {
+            sources.put(getFullImplName(generated.get(index).token()), generated.get(index).source());
+            tokens.add(generated.get(index).token());
+        }
+        Map<String, byte[]> compiled;
+        String error = null;
+        try {
+            compiled = ImplementorEvent.record(ImplementorEvent.COMPILATION, null, sources.size(),
+                    () -> getCompiler().compile(sources, tokens));
+        } catch (ImplerException e) {
+            compiled = Map.of();
+            error = e.getMessage();
+        }
+        if (error != null && batch.size() > 1) {
+            final int middle = batch.size() / 2;
+            compileBatch(generated, batch.subList(0, middle));
+            compileBatch(generated, batch.subList(middle, batch.size()));
+            return;
+        }
+
+        final long share = (System.nanoTime() - start) / batch.size();
+        for (final int index : batch) {
+            final Generated result = generated.get(index);
+            final byte[] classFile = compiled.get(getFullImplName(result.token()));
+            if (classFile != null) {
+                cache.putClassFile(result.token(), Backend.JAVAC, classFile);
+            }
+            generated.set(index, new Generated(result.token(), classFile, null, result.nanos() + share,
+                    classFile == null ? Objects.requireNonNullElse(error, "No classfile produced") : null));
+        }
+    }
+
+    /**
+     * Returns loaded implementation of class or interface specified by provided token, compiled
+     * in memory. Implementation is defined as a hidden class in the package of the token, so that
+     * package-private methods are overridden, or, if the package is not open to this module,
+     * by a dedicated class loader. Nothing is added to class loader of the token, and
+     * implementation is memoized along with the token rather than by this instance, so
+     * implementation may be unloaded together with the token. Repeated calls return the same class.
+     * Types of platform modules can not be implemented this way, since compiler refuses to
+     * compile classes in their packages and {@link Backend#BYTECODE} leaves them to compiler.
+     *
+     * @param token type token to create implementation for
+     * @return class implementing or extending token
+     * @throws ImplerException if implementation can not be generated, compiled or defined, or
+     * requires package access which is not granted
+     */
+    public Class<?> implementClass(final Class<?> token) throws ImplerException {
+        try {
+            return loaded.get(token);
+        } catch (final DefinitionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Unchecked wrapper of {@link ImplerException} thrown while defining implementation in
+     * {@link #loaded}, which can not throw checked exceptions
+     */
+    private static final class DefinitionException extends RuntimeException {
+        /**
+         * Version of serialized form
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Wraps exception
+         *
+         * @param cause exception to be wrapped
+         */
+        private DefinitionException(final ImplerException cause) {
+            super(cause);
+        }
+
+        /**
+         * Returns wrapped exception
+         *
+         * @return wrapped exception
+         */
+        @Override
+        public synchronized ImplerException getCause() {
+            return (ImplerException) super.getCause();
+        }
+    }
+
+    /**
+     * Defines class of implementation given by class file
+     *
+     * @param token implemented type token
+     * @param classFile class file of implementation
+     * @return defined class
+     * @throws ImplerException if class can not be defined or does not extend token
+     */
+    private static Class<?> defineClass(final Class<?> token, final byte[] classFile) throws ImplerException {
+        final String name = getFullImplName(token);
+        final Class<?> implementation;
+        try {
+            Implementor.class.getModule().addReads(token.getModule());
+            final MethodHandles.Lookup lookup = getPackageLookup(token);
+            if (lookup != null) {
+                implementation = lookup.defineHiddenClass(classFile, false).lookupClass();
+            } else if (requiresPackageAccess(token)) {
+                throw new ImplerException("Cannot define " + name + " in package of " + token.getName()
+                        + ", which is not open to " + Implementor.class.getModule());
+            } else {
+                implementation = new ImplementationClassLoader(token.getClassLoader()).define(name, classFile);
+            }
+        } catch (IllegalAccessException | LinkageError | SecurityException e) {
+            throw new ImplerException("Cannot define class " + name + ". " + e.getMessage());
+        }
+        if (!token.isAssignableFrom(implementation)) {
+            throw new ImplerException("Defined class " + implementation.getName()
+                    + " does not implement " + token.getName());
+        }
+        return implementation;
+    }
+
+    /**
+     * Returns lookup which may define hidden classes in the package of given token
+     *
+     * @param token type token
+     * @return lookup with full privilege access in token or {@code null} if it can not be obtained
+     */
+    private static MethodHandles.Lookup getPackageLookup(final Class<?> token) {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(token, MethodHandles.lookup());
+            return lookup.hasFullPrivilegeAccess() ? lookup : null;
+        } catch (final IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether implementation of given token should be in its runtime package: when token itself
+     * or some of its abstract methods are package-private, or none of its constructors is public or protected
+     *
+     * @param token type token
+     * @return {@code true} if implementation can not be defined by another class loader
+     * @throws ImplerException if token can not be implemented
+     */
+    private static boolean requiresPackageAccess(final Class<?> token) throws ImplerException {
+        final List<Constructor<?>> constructors = checkToken(token);
+        return isPackagePrivate(token.getModifiers())
+                || getAbstractMethods(token).stream().anyMatch(method -> isPackagePrivate(method.getModifiers()))
+                || constructors != null
+                && constructors.stream().noneMatch(constructor ->
+                        (constructor.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED)) != 0);
+    }
+
+    /**
+     * Checks whether modifiers denote package-private access
+     *
+     * @param modifiers modifiers of class or member
+     * @return {@code true} if there is neither public, protected nor private modifier
+     */
+    private static boolean isPackagePrivate(final int modifiers) {
+        return (modifiers & (Modifier.PUBLIC | Modifier.PROTECTED | Modifier.PRIVATE)) == 0;
+    }
+
+    /**
+     * Class loader defining single implementation class, which delegates to class loader
+     * of implemented token
+     */
+    private static final class ImplementationClassLoader extends ClassLoader {
+        /**
+         * Creates class loader
+         *
+         * @param parent class loader of implemented token
+         */
+        private ImplementationClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        /**
+         * Defines class
+         *
+         * @param name binary name of class
+         * @param classFile class file
+         * @return defined class
+         */
+        private Class<?> define(final String name, final byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+
     /**
      * The record wraps method to add it in set so that it can be distinguished from the other
      * method even if their {@link Method#getDeclaringClass()} coincide
      *
      * @param method method to be wrapped
+     * @param parameterTypes {@link Method#getParameterTypes()} of method, which returns a copy
+     * on every call
+     * @param hash hash of method, computed once
      */
 
-    private record MethodToGenerate(Method method) {
+    private record MethodToGenerate(Method method, Class<?>[] parameterTypes, int hash) {
+        /**
+         * Wraps method, computing its hash as defined by {@link #hashCode()}
+         *
+         * @param method method to be wrapped
+         */
+        private MethodToGenerate(final Method method) {
+            this(method, method.getParameterTypes());
+        }
+
+        /**
+         * Wraps method with given parameter types
+         *
+         * @param method method to be wrapped
+         * @param parameterTypes parameter types of method
+         */
+        private MethodToGenerate(final Method method, final Class<?>[] parameterTypes) {
+            this(method, parameterTypes, Objects.hash(method.getName(),
+                    Arrays.hashCode(parameterTypes),
+                    method.getReturnType()));
+        }
+
         /**
          * Returns hash of {@link #method}, which depends on {@link Method#getName()},
          * {@link Method#getReturnType()} and {@link Method#getParameterTypes()}
@@ -544,9 +1298,7 @@ public class Implementor implements JarImpler {
          */
         @Override
         public int hashCode() {
-            return Objects.hash(method.getName(),
-                    Arrays.hashCode(method.getParameterTypes()),
-                    method.getReturnType());
+            return hash;
         }
 
         /**
@@ -566,8 +1318,9 @@ public class Implementor implements JarImpler {
             }
             if (o instanceof final MethodToGenerate that) {
                 final Method thatMethod = that.method();
-                return thatMethod.getName().equals(method.getName())
-                        && Arrays.equals(thatMethod.getParameterTypes(), method.getParameterTypes())
+                return hash == that.hash
+                        && thatMethod.getName().equals(method.getName())
+                        && Arrays.equals(that.parameterTypes, parameterTypes)
                         && thatMethod.getReturnType().equals(method.getReturnType());
             }
             return false;
@@ -578,16 +1331,16 @@ public class Implementor implements JarImpler {
      * The class is created for design logic of a class to be generated
      */
 
-    private final static class Decoration {
+    final static class Decoration {
         /**
          * Java source file suffix
          */
-        private static final String JAVA_FILE = ".java";
+        static final String JAVA_FILE = ".java";
 
         /**
          * Compiled class file suffix
          */
-        private static final String CLASS_FILE = ".class";
+        static final String CLASS_FILE = ".class";
 
         /**
          * Line separator, which {@link System#lineSeparator()} returned
@@ -742,14 +1495,19 @@ public class Implementor implements JarImpler {
     /**
      * The starting point of execution of {@link Implementor}, which runs
      * {@link #implementJar(Class, Path)} and requires three non-null args
-     * consisting of {@code -jar} name of class and path to jarfile
+     * consisting of {@code -jar} name of class and path to jarfile.
+     * With {@code -scan} instead of {@code -jar} all implementable types of given jar file or
+     * module are implemented by {@link #implementJarParallel(List, Path, int)} and time spent
+     * on each type is printed.
      *
-     * @param args application running arguments ["-jar", "classname", "jarfile"]
+     * @param args application running arguments ["-jar", "classname", "jarfile"] or
+     * ["-scan", "jar file or module name", "jarfile"]
      */
     public static void main(String[] args) {
-        if (args == null || args.length != 3 || !"-jar".equals(args[0])) {
+        if (args == null || args.length != 3 || !"-jar".equals(args[0]) && !"-scan".equals(args[0])) {
             System.err.println("Usage:" + System.lineSeparator()
-                    + "    [-jar] <class name> <output path>");
+                    + "    [-jar] <class name> <output path>" + System.lineSeparator()
+                    + "    [-scan] <jar file or module name> <output path>");
             return;
         }
 
@@ -758,6 +1516,11 @@ public class Implementor implements JarImpler {
             return;
         }
 
+        if ("-scan".equals(args[0])) {
+            scan(args[1], args[2]);
+            return;
+        }
+
         try {
             final JarImpler implementor = new Implementor();
             implementor.implementJar(Class.forName(args[1]), Path.of(args[2]));
@@ -772,4 +1535,36 @@ public class Implementor implements JarImpler {
             System.err.println("Cannot parse " + args[2]);
         }
     }
+
+    /**
+     * Implements all implementable types of jar file or module and prints time spent on each type
+     *
+     * @param source jar file or name of system module
+     * @param jarFile path to target jarfile
+     */
+    private static void scan(final String source, final String jarFile) {
+        try {
+            final Path sourcePath = source.endsWith(".jar") ? Path.of(source) : null;
+            final List<Class<?>> tokens = sourcePath != null && Files.isRegularFile(sourcePath)
+                    ? ImplementorScanner.scanJar(sourcePath, Implementor.class.getClassLoader())
+                    : ImplementorScanner.scanModule(source, null);
+            final long start = System.nanoTime();
+            final List<Report> reports = new Implementor().implementJarParallel(tokens, Path.of(jarFile),
+                    Runtime.getRuntime().availableProcessors());
+            for (final Report report : reports) {
+                if (report.error() == null) {
+                    System.out.printf("%s %.3f ms%n", report.token().getName(), report.nanos() / 1e6);
+                } else {
+                    System.err.println(report.token().getName() + ": " + report.error());
+                }
+            }
+            System.out.printf("Implemented %d of %d types in %.3f ms%n",
+                    reports.stream().filter(report -> report.error() == null).count(), reports.size(),
+                    (System.nanoTime() - start) / 1e6);
+        } catch (ImplerException e) {
+            System.err.println(e.getMessage());
+        } catch (InvalidPathException e) {
+            System.err.println("Cannot parse " + source + " or " + jarFile);
+        }
+    }
 }
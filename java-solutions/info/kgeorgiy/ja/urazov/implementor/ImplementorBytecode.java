@@ -0,0 +1,564 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Generator of class files of implementations, which emits the same code as compiled generated
+ * sources without running compiler: constructors pass their arguments to super constructors and
+ * methods return default values.
+ * <p>
+ * Generated code has no branches, so no {@code StackMapTable} is required.
+ *
+ * @author Timur Urazov
+ */
+final class ImplementorBytecode {
+    /**
+     * Class file magic number
+     */
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /**
+     * Major version of class file, Java 17
+     */
+    private static final int MAJOR_VERSION = 61;
+
+    /**
+     * {@code ACC_SUPER} class access flag
+     */
+    private static final int ACC_SUPER = 0x0020;
+
+    /**
+     * Constant pool tags
+     */
+    private static final int CONSTANT_UTF8 = 1, CONSTANT_CLASS = 7,
+            CONSTANT_METHODREF = 10, CONSTANT_NAME_AND_TYPE = 12;
+
+    /**
+     * Opcodes
+     */
+    private static final int ACONST_NULL = 0x01, ICONST_0 = 0x03, LCONST_0 = 0x09,
+            FCONST_0 = 0x0b, DCONST_0 = 0x0e, ILOAD = 0x15, LLOAD = 0x16, FLOAD = 0x17,
+            DLOAD = 0x18, ALOAD = 0x19, IRETURN = 0xac, LRETURN = 0xad, FRETURN = 0xae,
+            DRETURN = 0xaf, ARETURN = 0xb0, RETURN = 0xb1, INVOKESPECIAL = 0xb7;
+
+    /**
+     * Constant pool entries by their content
+     */
+    private final Map<List<Object>, Integer> constants = new HashMap<>();
+
+    /**
+     * Serialized constant pool
+     */
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+
+    /**
+     * Constant pool writer
+     */
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+
+    /**
+     * Index of next constant pool entry
+     */
+    private int nextConstant = 1;
+
+    /**
+     * Creates generator
+     */
+    private ImplementorBytecode() {
+    }
+
+    /**
+     * Checks whether class file of implementation may be generated directly. Everything the
+     * compiler would reject is left to it, so both ways accept the same types:
+     * <ul>
+     *     <li>types of platform modules, which packages compiler refuses to extend from outside;</li>
+     *     <li>private super constructors and overloaded generic ones, which raw arguments of
+     *     generated source may call ambiguously;</li>
+     *     <li>package-private abstract methods of other packages, which implementation could not override;</li>
+     *     <li>signatures mentioning types not accessible from package of implementation;</li>
+     *     <li>inherited methods mentioning type variables, which generated source declares
+     *     with erased types while the hierarchy may bind them;</li>
+     *     <li>methods differing only in return type, which source can not declare both.</li>
+     * </ul>
+     * Checks are conservative, so some accepted hierarchies are compiled as well.
+     *
+     * @param token implemented type token
+     * @param constructors super constructors or {@code null} for interface
+     * @param methods abstract methods to be implemented
+     * @return {@code true} if {@link #generate(Class, String, List, Collection)} is applicable
+     */
+    static boolean isSupported(final Class<?> token, final List<Constructor<?>> constructors,
+                               final Collection<Method> methods) {
+        final String packageName = token.getPackageName();
+        final ClassLoader loader = token.getClassLoader();
+        return loader != null && loader != ClassLoader.getPlatformClassLoader()
+                && (constructors == null || constructors.stream().allMatch(constructor ->
+                        !Modifier.isPrivate(constructor.getModifiers())
+                                && isAccessible(constructor.getParameterTypes(), packageName)
+                                && isAccessible(constructor.getExceptionTypes(), packageName)))
+                && (constructors == null || !hasGenericOverloads(constructors))
+                && !hasForeignPackageAbstractMethods(token)
+                && !hasReturnTypeOverloads(methods)
+                && methods.stream().allMatch(method ->
+                        (method.getDeclaringClass() == token || !mentionsClassTypeVariables(method))
+                                && isAccessible(method.getReturnType(), packageName)
+                                && isAccessible(method.getParameterTypes(), packageName)
+                                && isAccessible(method.getExceptionTypes(), packageName));
+    }
+
+    /**
+     * Checks whether some constructors of the same number of parameters are overloaded
+     * and some of them has generic parameter types
+     *
+     * @param constructors super constructors
+     * @return {@code true} if there are such constructors
+     */
+    private static boolean hasGenericOverloads(final List<Constructor<?>> constructors) {
+        return constructors.stream()
+                .collect(Collectors.groupingBy(Constructor::getParameterCount))
+                .values().stream()
+                .anyMatch(overloads -> overloads.size() > 1 && overloads.stream().anyMatch(constructor ->
+                        Arrays.stream(constructor.getGenericParameterTypes())
+                                .anyMatch(type -> !(type instanceof Class<?>))));
+    }
+
+    /**
+     * Checks whether some methods have the same name and parameter types, differing in return type
+     *
+     * @param methods abstract methods to be implemented
+     * @return {@code true} if there are such methods
+     */
+    private static boolean hasReturnTypeOverloads(final Collection<Method> methods) {
+        return methods.stream()
+                .map(method -> method.getName() + Arrays.toString(method.getParameterTypes()))
+                .distinct()
+                .count() < methods.size();
+    }
+
+    /**
+     * Checks whether some superclass of other package declares package-private abstract method,
+     * which can not be overridden in package of token, even if token declares method of the same signature
+     *
+     * @param token implemented type token
+     * @return {@code true} if there is such method
+     */
+    private static boolean hasForeignPackageAbstractMethods(final Class<?> token) {
+        for (Class<?> type = token; type != null; type = type.getSuperclass()) {
+            if (!type.getPackageName().equals(token.getPackageName())) {
+                for (final Method method : type.getDeclaredMethods()) {
+                    final int modifiers = method.getModifiers();
+                    if (Modifier.isAbstract(modifiers)
+                            && (modifiers & (Modifier.PUBLIC | Modifier.PROTECTED | Modifier.PRIVATE)) == 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether generic signature of method mentions type variables of classes
+     *
+     * @param method method
+     * @return {@code true} if return, parameter or exception type mentions such variable
+     */
+    private static boolean mentionsClassTypeVariables(final Method method) {
+        return mentionsClassTypeVariables(method.getGenericReturnType())
+                || mentionsClassTypeVariables(method.getGenericParameterTypes())
+                || mentionsClassTypeVariables(method.getGenericExceptionTypes());
+    }
+
+    /**
+     * Checks whether some of generic types mentions type variables of classes
+     *
+     * @param types generic types
+     * @return {@code true} if some type is or contains such variable
+     */
+    private static boolean mentionsClassTypeVariables(final Type[] types) {
+        return Arrays.stream(types).anyMatch(ImplementorBytecode::mentionsClassTypeVariables);
+    }
+
+    /**
+     * Checks whether generic type mentions type variables of classes
+     *
+     * @param type generic type
+     * @return {@code true} if type is or contains such variable
+     */
+    private static boolean mentionsClassTypeVariables(final Type type) {
+        if (type instanceof final TypeVariable<?> variable) {
+            return variable.getGenericDeclaration() instanceof Class<?>;
+        } else if (type instanceof final ParameterizedType parameterized) {
+            return mentionsClassTypeVariables(parameterized.getActualTypeArguments());
+        } else if (type instanceof final GenericArrayType array) {
+            return mentionsClassTypeVariables(array.getGenericComponentType());
+        } else if (type instanceof final WildcardType wildcard) {
+            return mentionsClassTypeVariables(wildcard.getUpperBounds())
+                    || mentionsClassTypeVariables(wildcard.getLowerBounds());
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether all given types are accessible in given package
+     *
+     * @param types types
+     * @param packageName name of package
+     * @return {@code true} if every type is accessible
+     */
+    private static boolean isAccessible(final Class<?>[] types, final String packageName) {
+        return Arrays.stream(types).allMatch(type -> isAccessible(type, packageName));
+    }
+
+    /**
+     * Checks whether type, i.e. its element type and all classes enclosing it, is public
+     * or belongs to given package and is not private
+     *
+     * @param type type
+     * @param packageName name of package
+     * @return {@code true} if type is accessible
+     */
+    private static boolean isAccessible(final Class<?> type, final String packageName) {
+        Class<?> element = type;
+        while (element.isArray()) {
+            element = element.getComponentType();
+        }
+        if (element.isPrimitive()) {
+            return true;
+        }
+        final boolean samePackage = element.getPackageName().equals(packageName);
+        for (Class<?> current = element; current != null; current = current.getDeclaringClass()) {
+            final int modifiers = current.getModifiers();
+            if (!Modifier.isPublic(modifiers) && (!samePackage || Modifier.isPrivate(modifiers))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates class file of implementation
+     *
+     * @param token implemented type token
+     * @param className binary name of implementation
+     * @param constructors super constructors or {@code null} for interface, which implementation
+     * gets default constructor
+     * @param methods abstract methods to be implemented
+     * @return class file
+     */
+    static byte[] generate(final Class<?> token, final String className,
+                           final List<Constructor<?>> constructors, final Collection<Method> methods) {
+        final List<Constructor<?>> superConstructors;
+        try {
+            superConstructors = constructors == null ? List.of(Object.class.getConstructor()) : constructors;
+        } catch (final NoSuchMethodException e) {
+            throw new AssertionError("Object has public default constructor", e);
+        }
+        return new ImplementorBytecode().write(token, className, superConstructors, methods);
+    }
+
+    /**
+     * Writes class file
+     *
+     * @param token implemented type token
+     * @param className binary name of implementation
+     * @param constructors super constructors
+     * @param methods abstract methods to be implemented
+     * @return class file
+     */
+    private byte[] write(final Class<?> token, final String className,
+                         final List<Constructor<?>> constructors, final Collection<Method> methods) {
+        try {
+            final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            final DataOutputStream body = new DataOutputStream(bodyBytes);
+            final String superName = internalName(token.isInterface() ? Object.class : token);
+
+            body.writeShort(Modifier.PUBLIC | ACC_SUPER);
+            body.writeShort(classConstant(internalName(className)));
+            body.writeShort(classConstant(superName));
+            if (token.isInterface()) {
+                body.writeShort(1);
+                body.writeShort(classConstant(internalName(token)));
+            } else {
+                body.writeShort(0);
+            }
+            body.writeShort(0);
+
+            body.writeShort(constructors.size() + methods.size());
+            for (final Constructor<?> constructor : constructors) {
+                writeConstructor(body, superName, constructor);
+            }
+            for (final Method method : methods) {
+                writeMethod(body, method);
+            }
+            body.writeShort(0);
+
+            final ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+            final DataOutputStream classFile = new DataOutputStream(classBytes);
+            classFile.writeInt(MAGIC);
+            classFile.writeShort(0);
+            classFile.writeShort(MAJOR_VERSION);
+            classFile.writeShort(nextConstant);
+            poolBytes.writeTo(classFile);
+            bodyBytes.writeTo(classFile);
+            return classBytes.toByteArray();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Byte array streams do not throw", e);
+        }
+    }
+
+    /**
+     * Writes constructor loading all its parameters and passing them to super constructor
+     *
+     * @param out class file body
+     * @param superName internal name of superclass
+     * @param constructor super constructor
+     * @throws IOException never
+     */
+    private void writeConstructor(final DataOutputStream out, final String superName,
+                                  final Constructor<?> constructor) throws IOException {
+        final String descriptor = descriptor(constructor.getParameterTypes(), void.class);
+        final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        code.write(ALOAD);
+        code.write(0);
+        int slot = 1;
+        for (final Class<?> type : constructor.getParameterTypes()) {
+            code.write(loadOpcode(type));
+            code.write(slot);
+            slot += slots(type);
+        }
+        code.write(INVOKESPECIAL);
+        final int ref = methodConstant(superName, "<init>", descriptor);
+        code.write(ref >> 8);
+        code.write(ref);
+        code.write(RETURN);
+        writeMethodInfo(out, "<init>", descriptor, constructor, code.toByteArray(), slot, slot);
+    }
+
+    /**
+     * Writes method returning default value of its return type
+     *
+     * @param out class file body
+     * @param method method to be implemented
+     * @throws IOException never
+     */
+    private void writeMethod(final DataOutputStream out, final Method method) throws IOException {
+        final Class<?> type = method.getReturnType();
+        final byte[] code;
+        if (type == void.class) {
+            code = new byte[]{(byte) RETURN};
+        } else if (!type.isPrimitive()) {
+            code = new byte[]{ACONST_NULL, (byte) ARETURN};
+        } else if (type == long.class) {
+            code = new byte[]{LCONST_0, (byte) LRETURN};
+        } else if (type == float.class) {
+            code = new byte[]{FCONST_0, (byte) FRETURN};
+        } else if (type == double.class) {
+            code = new byte[]{DCONST_0, (byte) DRETURN};
+        } else {
+            code = new byte[]{ICONST_0, (byte) IRETURN};
+        }
+        int locals = 1;
+        for (final Class<?> parameter : method.getParameterTypes()) {
+            locals += slots(parameter);
+        }
+        writeMethodInfo(out, method.getName(), descriptor(method.getParameterTypes(), type),
+                method, code, type == void.class ? 0 : slots(type), locals);
+    }
+
+    /**
+     * Writes public method with {@code Code} and, if necessary, {@code Exceptions} attributes
+     *
+     * @param out class file body
+     * @param name method name
+     * @param descriptor method descriptor
+     * @param executable declared exceptions source
+     * @param code bytecode of method
+     * @param maxStack maximal depth of operand stack
+     * @param maxLocals number of local variable slots
+     * @throws IOException never
+     */
+    private void writeMethodInfo(final DataOutputStream out, final String name, final String descriptor,
+                                 final Executable executable, final byte[] code,
+                                 final int maxStack, final int maxLocals) throws IOException {
+        final Class<?>[] exceptions = executable.getExceptionTypes();
+        out.writeShort(Modifier.PUBLIC);
+        out.writeShort(utf8Constant(name));
+        out.writeShort(utf8Constant(descriptor));
+        out.writeShort(exceptions.length == 0 ? 1 : 2);
+
+        out.writeShort(utf8Constant("Code"));
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+
+        if (exceptions.length != 0) {
+            out.writeShort(utf8Constant("Exceptions"));
+            out.writeInt(2 + 2 * exceptions.length);
+            out.writeShort(exceptions.length);
+            for (final Class<?> exception : exceptions) {
+                out.writeShort(classConstant(internalName(exception)));
+            }
+        }
+    }
+
+    /**
+     * Returns index of constant pool entry, adding it if absent
+     *
+     * @param key entry content, starting with tag
+     * @param writer writer of entry after its tag
+     * @return index of entry
+     * @throws IOException never
+     */
+    private int constant(final List<Object> key, final EntryWriter writer) throws IOException {
+        final Integer index = constants.get(key);
+        if (index != null) {
+            return index;
+        }
+        writer.write();
+        constants.put(key, nextConstant);
+        return nextConstant++;
+    }
+
+    /**
+     * Returns index of {@code CONSTANT_Utf8} entry
+     *
+     * @param value string
+     * @return index of entry
+     * @throws IOException never
+     */
+    private int utf8Constant(final String value) throws IOException {
+        return constant(List.of(CONSTANT_UTF8, value), () -> {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(value);
+        });
+    }
+
+    /**
+     * Returns index of {@code CONSTANT_Class} entry
+     *
+     * @param internalName internal name of class
+     * @return index of entry
+     * @throws IOException never
+     */
+    private int classConstant(final String internalName) throws IOException {
+        final int name = utf8Constant(internalName);
+        return constant(List.of(CONSTANT_CLASS, internalName), () -> {
+            pool.writeByte(CONSTANT_CLASS);
+            pool.writeShort(name);
+        });
+    }
+
+    /**
+     * Returns index of {@code CONSTANT_Methodref} entry
+     *
+     * @param owner internal name of class declaring method
+     * @param name method name
+     * @param descriptor method descriptor
+     * @return index of entry
+     * @throws IOException never
+     */
+    private int methodConstant(final String owner, final String name, final String descriptor)
+            throws IOException {
+        final int ownerIndex = classConstant(owner);
+        final int nameIndex = utf8Constant(name);
+        final int descriptorIndex = utf8Constant(descriptor);
+        final int nameAndType = constant(List.of(CONSTANT_NAME_AND_TYPE, name, descriptor), () -> {
+            pool.writeByte(CONSTANT_NAME_AND_TYPE);
+            pool.writeShort(nameIndex);
+            pool.writeShort(descriptorIndex);
+        });
+        return constant(List.of(CONSTANT_METHODREF, owner, name, descriptor), () -> {
+            pool.writeByte(CONSTANT_METHODREF);
+            pool.writeShort(ownerIndex);
+            pool.writeShort(nameAndType);
+        });
+    }
+
+    /**
+     * Writer of constant pool entry
+     */
+    @FunctionalInterface
+    private interface EntryWriter {
+        /**
+         * Writes entry to constant pool
+         *
+         * @throws IOException never
+         */
+        void write() throws IOException;
+    }
+
+    /**
+     * Returns internal name of class
+     *
+     * @param token type token
+     * @return binary name with dots replaced by slashes
+     */
+    private static String internalName(final Class<?> token) {
+        return internalName(token.getName());
+    }
+
+    /**
+     * Returns internal name of class
+     *
+     * @param className binary name of class
+     * @return binary name with dots replaced by slashes
+     */
+    private static String internalName(final String className) {
+        return className.replace('.', '/');
+    }
+
+    /**
+     * Returns method descriptor
+     *
+     * @param parameters parameter types
+     * @param returnType return type
+     * @return method descriptor
+     */
+    private static String descriptor(final Class<?>[] parameters, final Class<?> returnType) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        for (final Class<?> parameter : parameters) {
+            descriptor.append(parameter.descriptorString());
+        }
+        return descriptor.append(')').append(returnType.descriptorString()).toString();
+    }
+
+    /**
+     * Returns number of local variable slots taken by value of given type
+     *
+     * @param type value type
+     * @return 2 for {@code long} and {@code double}, 1 otherwise
+     */
+    private static int slots(final Class<?> type) {
+        return type == long.class || type == double.class ? 2 : 1;
+    }
+
+    /**
+     * Returns opcode loading local variable of given type
+     *
+     * @param type variable type
+     * @return load opcode
+     */
+    private static int loadOpcode(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return ALOAD;
+        } else if (type == long.class) {
+            return LLOAD;
+        } else if (type == float.class) {
+            return FLOAD;
+        } else if (type == double.class) {
+            return DLOAD;
+        }
+        return ILOAD;
+    }
+}
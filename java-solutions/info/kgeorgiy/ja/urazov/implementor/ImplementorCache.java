@@ -0,0 +1,352 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Cache of generated sources and compiled classes of implementations, kept in memory and,
+ * optionally, in a directory on disk.
+ * <p>
+ * Entries are keyed by name of implemented class, version of generated code and fingerprint
+ * of bytecode of the class and all its ancestors, so that changed or differently loaded classes
+ * are never confused. Class files are keyed by {@link Implementor.Backend backend} as well.
+ * Entries of classes whose bytecode is not available are kept in memory only.
+ * <p>
+ * Memory holds at most {@value #MEMORY_CAPACITY} most recently used sources and as many class files,
+ * so that scanning large jars or modules does not grow the cache without limit. Evicted entries
+ * are still found on disk, if there is on-disk cache.
+ *
+ * @author Timur Urazov
+ */
+final class ImplementorCache {
+    /**
+     * Version of generated code, changing it invalidates caches on disk
+     */
+    private static final String FORMAT_VERSION = "3";
+
+    /**
+     * Maximal number of sources and of class files kept in memory
+     */
+    private static final int MEMORY_CAPACITY = 1024;
+
+    /**
+     * Memoized cache keys of type tokens
+     */
+    private static final ClassValue<Key> KEYS = new ClassValue<>() {
+        @Override
+        protected Key computeValue(final Class<?> token) {
+            return fingerprint(token);
+        }
+    };
+
+    /**
+     * Cache key of type token
+     *
+     * @param key name of token, version of generated code and fingerprint of its hierarchy
+     * @param persistent whether fingerprint is based on bytecode only, so that key is meaningful
+     *                   in other virtual machines
+     */
+    private record Key(String key, boolean persistent) {
+    }
+
+    /**
+     * Directory of on-disk cache or {@code null} if cache is kept in memory only
+     */
+    private final Path directory;
+
+    /**
+     * Generated sources by cache key, least recently used are evicted
+     */
+    private final Map<String, byte[]> sources = lruMap();
+
+    /**
+     * Compiled classes by cache key, least recently used are evicted
+     */
+    private final Map<String, byte[]> classes = lruMap();
+
+    /**
+     * Computation which may fail with {@link ImplerException}
+     *
+     * @param <T> type of result
+     */
+    @FunctionalInterface
+    interface ImplerSupplier<T> {
+        /**
+         * Computes result
+         *
+         * @return computed result
+         * @throws ImplerException if computation failed
+         */
+        T get() throws ImplerException;
+    }
+
+    /**
+     * Creates cache
+     *
+     * @param directory directory of on-disk cache or {@code null} to keep cache in memory only
+     */
+    ImplementorCache(final Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Creates synchronized map keeping at most {@value #MEMORY_CAPACITY} most recently used entries
+     *
+     * @return empty map
+     */
+    private static Map<String, byte[]> lruMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, byte[]> eldest) {
+                return size() > MEMORY_CAPACITY;
+            }
+        });
+    }
+
+    /**
+     * Returns cache key of given token, which changes whenever bytecode of the token or of any
+     * of its ancestors changes
+     *
+     * @param token implemented type token
+     * @return name of token and fingerprint of its hierarchy
+     */
+    static String key(final Class<?> token) {
+        return KEYS.get(token).key();
+    }
+
+    /**
+     * Returns cache key of class file of implementation of given token produced by given backend
+     *
+     * @param token implemented type token
+     * @param backend backend producing class file
+     * @return {@link #key(Class) key} of token and name of backend
+     */
+    static String key(final Class<?> token, final Implementor.Backend backend) {
+        return key(token) + "-" + backend.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Checks whether {@link #key(Class) key} of given token may be stored and compared
+     * in other virtual machines
+     *
+     * @param token implemented type token
+     * @return {@code false} if bytecode of some type in hierarchy of token is not available
+     */
+    static boolean isPersistent(final Class<?> token) {
+        return KEYS.get(token).persistent();
+    }
+
+    /**
+     * Returns cached source of implementation of given token, computing and storing it if absent
+     *
+     * @param token implemented type token
+     * @param generator source generator to be called on cache miss
+     * @return source of implementation
+     * @throws ImplerException if generator threw it
+     */
+    String source(final Class<?> token, final ImplerSupplier<String> generator) throws ImplerException {
+        final byte[] source = get(sources, token, Implementor.Decoration.JAVA_FILE,
+                () -> generator.get().getBytes(StandardCharsets.UTF_8));
+        return new String(source, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns cached source of implementation of given token
+     *
+     * @param token implemented type token
+     * @return source of implementation or {@code null} if it is not cached
+     */
+    String getSource(final Class<?> token) {
+        final byte[] source = lookup(sources, key(token), isPersistent(token), Implementor.Decoration.JAVA_FILE);
+        return source == null ? null : new String(source, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stores source of implementation of given token
+     *
+     * @param token implemented type token
+     * @param source source of implementation
+     */
+    void putSource(final Class<?> token, final String source) {
+        store(sources, key(token), isPersistent(token), Implementor.Decoration.JAVA_FILE,
+                source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns cached class file of implementation of given token produced by given backend
+     *
+     * @param token implemented type token
+     * @param backend backend producing class file
+     * @return class file of implementation or {@code null} if it is not cached
+     */
+    byte[] getClassFile(final Class<?> token, final Implementor.Backend backend) {
+        return lookup(classes, key(token, backend), isPersistent(token), Implementor.Decoration.CLASS_FILE);
+    }
+
+    /**
+     * Stores class file of implementation of given token produced by given backend
+     *
+     * @param token implemented type token
+     * @param backend backend producing class file
+     * @param classFile class file of implementation
+     */
+    void putClassFile(final Class<?> token, final Implementor.Backend backend, final byte[] classFile) {
+        store(classes, key(token, backend), isPersistent(token), Implementor.Decoration.CLASS_FILE, classFile);
+    }
+
+    /**
+     * Looks value up in memory, then on disk, and computes it on miss
+     *
+     * @param memory in-memory cache
+     * @param token implemented type token
+     * @param suffix suffix of on-disk cache file
+     * @param supplier value computation
+     * @return cached or computed value
+     * @throws ImplerException if supplier threw it
+     */
+    private byte[] get(final Map<String, byte[]> memory, final Class<?> token, final String suffix,
+                       final ImplerSupplier<byte[]> supplier) throws ImplerException {
+        final String key = key(token);
+        final boolean persistent = isPersistent(token);
+        byte[] value = lookup(memory, key, persistent, suffix);
+        if (value == null) {
+            value = supplier.get();
+            store(memory, key, persistent, suffix, value);
+        }
+        return value;
+    }
+
+    /**
+     * Looks value up in memory, then, if key is persistent, on disk, keeping value read from disk in memory
+     *
+     * @param memory in-memory cache
+     * @param key cache key
+     * @param persistent whether key is meaningful on disk
+     * @param suffix suffix of on-disk cache file
+     * @return cached value or {@code null} on miss
+     */
+    private byte[] lookup(final Map<String, byte[]> memory, final String key, final boolean persistent,
+                          final String suffix) {
+        byte[] value = memory.get(key);
+        if (value == null && persistent) {
+            value = read(key, suffix);
+            if (value != null) {
+                memory.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Stores value in memory and, if key is persistent, on disk
+     *
+     * @param memory in-memory cache
+     * @param key cache key
+     * @param persistent whether key is meaningful on disk
+     * @param suffix suffix of on-disk cache file
+     * @param value value to be stored
+     */
+    private void store(final Map<String, byte[]> memory, final String key, final boolean persistent,
+                       final String suffix, final byte[] value) {
+        if (persistent) {
+            write(key, suffix, value);
+        }
+        memory.put(key, value);
+    }
+
+    /**
+     * Reads on-disk cache file
+     *
+     * @param key cache key
+     * @param suffix cache file suffix
+     * @return file content or {@code null} if there is no such file or it can not be read
+     */
+    private byte[] read(final String key, final String suffix) {
+        if (directory != null) {
+            try {
+                return Files.readAllBytes(directory.resolve(key + suffix));
+            } catch (final IOException ignored) {
+                // Cache miss
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes on-disk cache file atomically, ignoring errors
+     *
+     * @param key cache key
+     * @param suffix cache file suffix
+     * @param value file content
+     */
+    private void write(final String key, final String suffix, final byte[] value) {
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+                final Path temp = Files.createTempFile(directory, key, suffix);
+                Files.write(temp, value);
+                Files.move(temp, directory.resolve(key + suffix),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final IOException ignored) {
+                // Cache is an optimization only
+            }
+        }
+    }
+
+    /**
+     * Computes fingerprint of bytecode of given class and all its superclasses and
+     * superinterfaces. Classes whose bytecode is not available are represented by identity
+     * of their class loader, which makes key meaningful in current virtual machine only.
+     *
+     * @param token type token
+     * @return key made of name of token, version of generated code and hexadecimal SHA-256 digest
+     */
+    private static Key fingerprint(final Class<?> token) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is required to be supported", e);
+        }
+        digest.update(FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+
+        final Deque<Class<?>> queue = new ArrayDeque<>(List.of(token));
+        final Set<Class<?>> visited = new HashSet<>();
+        boolean persistent = true;
+        while (!queue.isEmpty()) {
+            final Class<?> type = queue.poll();
+            if (!visited.add(type)) {
+                continue;
+            }
+            digest.update(type.getName().getBytes(StandardCharsets.UTF_8));
+            try (final InputStream bytecode = type.getResourceAsStream(
+                    "/" + type.getName().replace('.', '/') + Implementor.Decoration.CLASS_FILE)) {
+                if (bytecode == null) {
+                    persistent = false;
+                    digest.update(String.valueOf(System.identityHashCode(type.getClassLoader()))
+                            .getBytes(StandardCharsets.UTF_8));
+                } else {
+                    digest.update(bytecode.readAllBytes());
+                }
+            } catch (final IOException e) {
+                persistent = false;
+                digest.update(String.valueOf(System.identityHashCode(type)).getBytes(StandardCharsets.UTF_8));
+            }
+            if (type.getSuperclass() != null) {
+                queue.add(type.getSuperclass());
+            }
+            queue.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        return new Key(token.getName() + "-" + FORMAT_VERSION + "-" + HexFormat.of().formatHex(digest.digest()),
+                persistent);
+    }
+}
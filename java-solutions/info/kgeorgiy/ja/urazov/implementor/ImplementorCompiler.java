@@ -0,0 +1,274 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Compiler of generated implementations, which compiles any number of sources by a single
+ * compiler invocation and reuses one {@link StandardJavaFileManager} between invocations.
+ * Sources and class files may be either files or kept in memory.
+ *
+ * @author Timur Urazov
+ */
+final class ImplementorCompiler {
+    /**
+     * Compiler options: generated sources need no annotation processing
+     */
+    private static final List<String> OPTIONS = List.of("-proc:none");
+
+    /**
+     * System java compiler
+     */
+    private final JavaCompiler compiler;
+
+    /**
+     * File manager shared between compilations
+     */
+    private final StandardJavaFileManager fileManager;
+
+    /**
+     * Creates compiler
+     *
+     * @throws ImplerException if compiler could not be found
+     */
+    ImplementorCompiler() throws ImplerException {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new ImplerException("Could not find java compiler, include tools.jar to classpath");
+        }
+        fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compiles given source files in a single compiler invocation, putting class files
+     * to given directory
+     *
+     * @param sources source files to be compiled
+     * @param tokens implemented type tokens, which code sources form classpath
+     * @param output directory for class files or {@code null} to put them next to sources
+     * @throws ImplerException if compilation failed or if classpath or output directory is invalid
+     */
+    synchronized void compile(final Collection<Path> sources, final Collection<Class<?>> tokens,
+                              final Path output) throws ImplerException {
+        try {
+            if (output == null) {
+                fileManager.setLocation(StandardLocation.CLASS_OUTPUT, null);
+            } else {
+                fileManager.setLocationFromPaths(StandardLocation.CLASS_OUTPUT, List.of(output));
+            }
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, getClasspath(tokens));
+        } catch (IOException e) {
+            throw new ImplerException("Invalid compiler location. " + e.getMessage());
+        }
+        run(fileManager, fileManager.getJavaFileObjectsFromPaths(sources));
+    }
+
+    /**
+     * Compiles given sources in a single compiler invocation without touching file system:
+     * sources are read from memory and class files are written to memory
+     *
+     * @param sources source codes by binary names of classes
+     * @param tokens implemented type tokens, which code sources form classpath
+     * @return class files by binary names of classes
+     * @throws ImplerException if compilation failed or if classpath is invalid
+     */
+    synchronized Map<String, byte[]> compile(final Map<String, String> sources,
+                                             final Collection<Class<?>> tokens) throws ImplerException {
+        try {
+            fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, getClasspath(tokens));
+        } catch (IOException e) {
+            throw new ImplerException("Invalid compiler location. " + e.getMessage());
+        }
+        final MemoryFileManager memory = new MemoryFileManager(fileManager);
+        run(memory, sources.entrySet().stream()
+                .map(source -> new MemorySource(source.getKey(), source.getValue()))
+                .collect(Collectors.toList()));
+        return memory.classes.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().bytes.toByteArray()));
+    }
+
+    /**
+     * Runs compiler on given compilation units
+     *
+     * @param manager file manager to be used by compiler
+     * @param units compilation units
+     * @throws ImplerException if compilation failed
+     */
+    private void run(final JavaFileManager manager,
+                     final Iterable<? extends JavaFileObject> units) throws ImplerException {
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        final boolean success = compiler.getTask(null, manager, diagnostics, OPTIONS, null, units).call();
+        if (!success) {
+            throw new ImplerException("Compilation error: " + diagnostics.getDiagnostics().stream()
+                    .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                    .map(diagnostic -> diagnostic.getMessage(Locale.ROOT))
+                    .collect(Collectors.joining(System.lineSeparator())));
+        }
+    }
+
+    /**
+     * Returns locations of code sources of given tokens, their ancestors and types of signatures
+     * of methods declared by them, which compiler needs to resolve. Tokens of platform modules have
+     * no code source or one outside of file system and are available to compiler anyway.
+     *
+     * @param tokens type tokens
+     * @return distinct code source locations
+     * @throws ImplerException if error occurred parsing uri of classpath
+     */
+    static List<Path> getClasspath(final Collection<Class<?>> tokens) throws ImplerException {
+        final Set<Class<?>> types = new LinkedHashSet<>();
+        final Deque<Class<?>> queue = new ArrayDeque<>(tokens);
+        while (!queue.isEmpty()) {
+            final Class<?> type = queue.poll();
+            if (!types.add(type)) {
+                continue;
+            }
+            if (type.getSuperclass() != null) {
+                queue.add(type.getSuperclass());
+            }
+            queue.addAll(Arrays.asList(type.getInterfaces()));
+            try {
+                for (final Method method : type.getDeclaredMethods()) {
+                    addElementType(queue, method.getReturnType());
+                    Arrays.stream(method.getParameterTypes()).forEach(parameter -> addElementType(queue, parameter));
+                    Arrays.stream(method.getExceptionTypes()).forEach(exception -> addElementType(queue, exception));
+                }
+            } catch (final LinkageError ignored) {
+                // Compiler reports missing types itself
+            }
+        }
+
+        final Set<Path> classpath = new LinkedHashSet<>();
+        try {
+            for (final Class<?> type : types) {
+                final CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+                if (codeSource != null && codeSource.getLocation() != null
+                        && "file".equals(codeSource.getLocation().getProtocol())) {
+                    classpath.add(Path.of(codeSource.getLocation().toURI()));
+                }
+            }
+        } catch (URISyntaxException e) {
+            throw new ImplerException("Error parsing uri of classpath");
+        }
+        return new ArrayList<>(classpath);
+    }
+
+    /**
+     * Adds element type of given type to queue of types to visit, unless it is primitive
+     *
+     * @param queue types to visit
+     * @param type type or array type
+     */
+    private static void addElementType(final Deque<Class<?>> queue, final Class<?> type) {
+        Class<?> element = type;
+        while (element.isArray()) {
+            element = element.getComponentType();
+        }
+        if (!element.isPrimitive()) {
+            queue.add(element);
+        }
+    }
+
+    /**
+     * Returns URI of in-memory file object of given class
+     *
+     * @param className binary name of class
+     * @param kind kind of file object
+     * @return URI in memory scheme
+     */
+    private static URI memoryUri(final String className, final JavaFileObject.Kind kind) {
+        return URI.create("memory:///" + className.replace('.', '/') + kind.extension);
+    }
+
+    /**
+     * Source file kept in memory
+     */
+    private static final class MemorySource extends SimpleJavaFileObject {
+        /**
+         * Source code
+         */
+        private final String source;
+
+        /**
+         * Creates source file
+         *
+         * @param className binary name of class
+         * @param source source code
+         */
+        private MemorySource(final String className, final String source) {
+            super(memoryUri(className, Kind.SOURCE), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * Class file written to memory
+     */
+    private static final class MemoryClass extends SimpleJavaFileObject {
+        /**
+         * Content of class file
+         */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * Creates empty class file
+         *
+         * @param className binary name of class
+         */
+        private MemoryClass(final String className) {
+            super(memoryUri(className, Kind.CLASS), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+    }
+
+    /**
+     * File manager writing class output to memory and delegating everything else
+     * to standard file manager
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        /**
+         * Class files written by compiler by binary names of classes
+         */
+        private final Map<String, MemoryClass> classes = new LinkedHashMap<>();
+
+        /**
+         * Creates file manager
+         *
+         * @param fileManager standard file manager to delegate to
+         */
+        private MemoryFileManager(final StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(final Location location, final String className,
+                                                   final JavaFileObject.Kind kind,
+                                                   final FileObject sibling) throws IOException {
+            if (location == StandardLocation.CLASS_OUTPUT && kind == JavaFileObject.Kind.CLASS) {
+                return classes.computeIfAbsent(className, MemoryClass::new);
+            }
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+    }
+}
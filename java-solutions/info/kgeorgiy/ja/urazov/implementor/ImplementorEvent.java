@@ -0,0 +1,80 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event spanning a phase of work of {@link Implementor}: reflection over
+ * implemented type, source generation, escaping and writing of source, compilation or
+ * direct generation of class files, and writing of jar file. Sources which are not cached
+ * yet are escaped and written as they are generated, so this work is a part of generation phase,
+ * while escaping phase covers writing of cached sources.
+ * <p>
+ * Events are disabled unless a recording enables {@value #NAME}, in which case they cost
+ * a pair of {@link System#nanoTime()} calls.
+ *
+ * @author Timur Urazov
+ */
+@Name(ImplementorEvent.NAME)
+@Label("Implementor Phase")
+@Category("Implementor")
+@Description("Phase of implementation of types")
+@StackTrace(false)
+final class ImplementorEvent extends Event {
+    /**
+     * Name of event type
+     */
+    static final String NAME = "info.kgeorgiy.ja.urazov.implementor.Phase";
+
+    /**
+     * Phases of implementation
+     */
+    static final String REFLECTION = "reflection", GENERATION = "generation", ESCAPING = "escaping",
+            COMPILATION = "compilation", JAR = "jar";
+
+    /**
+     * Phase of implementation
+     */
+    @Label("Phase")
+    String phase;
+
+    /**
+     * Implemented type or {@code null} if phase handles many types
+     */
+    @Label("Type")
+    Class<?> type;
+
+    /**
+     * Number of types handled by phase
+     */
+    @Label("Types")
+    int types;
+
+    /**
+     * Runs action of given phase inside of event
+     *
+     * @param phase phase of implementation
+     * @param type implemented type or {@code null} if action handles many types
+     * @param types number of types handled by action
+     * @param action action to be run
+     * @param <T> type of result of action
+     * @return result of action
+     * @throws ImplerException if action threw it
+     */
+    static <T> T record(final String phase, final Class<?> type, final int types,
+                        final ImplementorCache.ImplerSupplier<T> action) throws ImplerException {
+        final ImplementorEvent event = new ImplementorEvent();
+        if (!event.isEnabled()) {
+            return action.get();
+        }
+        event.begin();
+        try {
+            return action.get();
+        } finally {
+            event.phase = phase;
+            event.type = type;
+            event.types = types;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Minimal reader and writer of jar files, which can copy entries of a previous jar file
+ * without decompressing and compressing them again.
+ * <p>
+ * Only plain jar files are supported: no ZIP64, no encryption, no multi-disk archives.
+ * Entries are written with a fixed timestamp, so that equal content gives equal jar files.
+ *
+ * @author Timur Urazov
+ */
+final class ImplementorJar {
+    /**
+     * Signatures of ZIP records
+     */
+    private static final int LOCAL_HEADER = 0x04034b50, CENTRAL_HEADER = 0x02014b50,
+            END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    /**
+     * Sizes of fixed parts of ZIP records
+     */
+    private static final int LOCAL_HEADER_SIZE = 30, CENTRAL_HEADER_SIZE = 46,
+            END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+    /**
+     * Compression methods
+     */
+    private static final int STORED = 0, DEFLATED = 8;
+
+    /**
+     * General purpose flags: encryption and UTF-8 names
+     */
+    private static final int FLAG_ENCRYPTED = 0x1, FLAG_UTF8 = 0x800;
+
+    /**
+     * Version needed to extract deflated entries
+     */
+    private static final int VERSION = 20;
+
+    /**
+     * MS-DOS date of 1980-01-01, the earliest representable one
+     */
+    private static final int DOS_DATE = (1 << 5) | 1;
+
+    /**
+     * Maximal length of ZIP file comment
+     */
+    private static final int MAX_COMMENT = 0xffff;
+
+    /**
+     * Utility class
+     */
+    private ImplementorJar() {
+    }
+
+    /**
+     * Compressed jar entry, which data is a slice of an array
+     *
+     * @param name entry name
+     * @param method compression method
+     * @param crc CRC-32 of uncompressed content
+     * @param data array containing compressed content
+     * @param offset offset of compressed content in array
+     * @param compressedSize size of compressed content
+     * @param size size of uncompressed content
+     */
+    record Entry(String name, int method, int crc, byte[] data, int offset, int compressedSize, int size) {
+        /**
+         * Returns uncompressed content
+         *
+         * @return uncompressed content
+         * @throws IOException if content is corrupted
+         */
+        byte[] content() throws IOException {
+            if (method == STORED) {
+                return Arrays.copyOfRange(data, offset, offset + size);
+            }
+            final Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(data, offset, compressedSize);
+                final byte[] content = new byte[size];
+                int read = 0;
+                while (read < size && !inflater.finished()) {
+                    final int n = inflater.inflate(content, read, size - read);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    read += n;
+                }
+                if (read != size) {
+                    throw new IOException("Truncated entry " + name);
+                }
+                return content;
+            } catch (final DataFormatException e) {
+                throw new IOException("Corrupted entry " + name + ". " + e.getMessage(), e);
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * Compresses content into new entry
+     *
+     * @param name entry name
+     * @param content uncompressed content
+     * @return entry
+     */
+    static Entry deflate(final String name, final byte[] content) {
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2 + 16);
+            final byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            final byte[] data = compressed.toByteArray();
+            return new Entry(name, DEFLATED, (int) crc.getValue(), data, 0, data.length, content.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reads entries of jar file without decompressing them
+     *
+     * @param jar jar file
+     * @return entries by names in order of central directory
+     * @throws IOException if jar file can not be read, is corrupted or uses unsupported features
+     */
+    static Map<String, Entry> read(final Path jar) throws IOException {
+        final byte[] file = Files.readAllBytes(jar);
+        final ByteBuffer buffer = ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN);
+
+        int end = file.length - END_OF_CENTRAL_DIRECTORY_SIZE;
+        final int limit = Math.max(0, end - MAX_COMMENT);
+        while (end >= limit && buffer.getInt(end) != END_OF_CENTRAL_DIRECTORY) {
+            end--;
+        }
+        if (end < limit) {
+            throw new IOException("Not a jar file: " + jar);
+        }
+        final int count = Short.toUnsignedInt(buffer.getShort(end + 10));
+        int position = buffer.getInt(end + 16);
+        if (count == 0xffff || position == -1) {
+            throw new IOException("ZIP64 is not supported: " + jar);
+        }
+
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (buffer.getInt(position) != CENTRAL_HEADER) {
+                    throw new IOException("Corrupted central directory: " + jar);
+                }
+                final int flags = Short.toUnsignedInt(buffer.getShort(position + 8));
+                final int method = Short.toUnsignedInt(buffer.getShort(position + 10));
+                final int crc = buffer.getInt(position + 16);
+                final int compressedSize = buffer.getInt(position + 20);
+                final int size = buffer.getInt(position + 24);
+                final int nameLength = Short.toUnsignedInt(buffer.getShort(position + 28));
+                final int extraLength = Short.toUnsignedInt(buffer.getShort(position + 30));
+                final int commentLength = Short.toUnsignedInt(buffer.getShort(position + 32));
+                final int localHeader = buffer.getInt(position + 42);
+                if ((flags & FLAG_ENCRYPTED) != 0 || method != STORED && method != DEFLATED
+                        || compressedSize < 0 || size < 0 || localHeader < 0) {
+                    throw new IOException("Unsupported entry in " + jar);
+                }
+                final String name = new String(file, position + CENTRAL_HEADER_SIZE, nameLength,
+                        StandardCharsets.UTF_8);
+
+                if (buffer.getInt(localHeader) != LOCAL_HEADER) {
+                    throw new IOException("Corrupted entry " + name + " in " + jar);
+                }
+                final int offset = localHeader + LOCAL_HEADER_SIZE
+                        + Short.toUnsignedInt(buffer.getShort(localHeader + 26))
+                        + Short.toUnsignedInt(buffer.getShort(localHeader + 28));
+                if (offset + compressedSize > file.length) {
+                    throw new IOException("Truncated entry " + name + " in " + jar);
+                }
+                entries.put(name, new Entry(name, method, crc, file, offset, compressedSize, size));
+                position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+            }
+        } catch (final IndexOutOfBoundsException e) {
+            throw new IOException("Corrupted jar file: " + jar, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Writes entries to output stream as jar file, copying compressed data as is
+     *
+     * @param out output stream
+     * @param entries entries in order of writing
+     * @throws IOException if output stream threw it
+     */
+    static void write(final OutputStream out, final Collection<Entry> entries) throws IOException {
+        final ByteArrayOutputStream central = new ByteArrayOutputStream();
+        long position = 0;
+        for (final Entry entry : entries) {
+            final byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+            final ByteBuffer local = header(LOCAL_HEADER_SIZE + name.length, LOCAL_HEADER, entry, name.length);
+            local.putShort((short) 0);
+            local.put(name);
+            out.write(local.array());
+            out.write(entry.data(), entry.offset(), entry.compressedSize());
+
+            final ByteBuffer header = header(CENTRAL_HEADER_SIZE + name.length, CENTRAL_HEADER, entry, name.length);
+            // Extra, comment, disk, internal and external attributes
+            header.putShort((short) 0).putShort((short) 0).putShort((short) 0).putShort((short) 0).putInt(0);
+            header.putInt((int) position);
+            header.put(name);
+            central.write(header.array());
+
+            position += local.capacity() + entry.compressedSize();
+        }
+        if (entries.size() >= 0xffff || position + central.size() >= 0xffffffffL) {
+            throw new IOException("Jar file is too large, ZIP64 is not supported");
+        }
+
+        central.writeTo(out);
+        final ByteBuffer end = ByteBuffer.allocate(END_OF_CENTRAL_DIRECTORY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(END_OF_CENTRAL_DIRECTORY).putShort((short) 0).putShort((short) 0)
+                .putShort((short) entries.size()).putShort((short) entries.size())
+                .putInt(central.size()).putInt((int) position).putShort((short) 0);
+        out.write(end.array());
+    }
+
+    /**
+     * Starts local or central header, writing fields common for both of them
+     *
+     * @param capacity size of header
+     * @param signature signature of header
+     * @param entry entry
+     * @param nameLength length of UTF-8 encoded name
+     * @return buffer positioned after name length field
+     */
+    private static ByteBuffer header(final int capacity, final int signature, final Entry entry,
+                                     final int nameLength) {
+        final ByteBuffer header = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(signature);
+        if (signature == CENTRAL_HEADER) {
+            header.putShort((short) VERSION);
+        }
+        header.putShort((short) VERSION)
+                .putShort((short) FLAG_UTF8)
+                .putShort((short) entry.method())
+                .putShort((short) 0)
+                .putShort((short) DOS_DATE)
+                .putInt(entry.crc())
+                .putInt(entry.compressedSize())
+                .putInt(entry.size())
+                .putShort((short) nameLength);
+        return header;
+    }
+}
@@ -0,0 +1,160 @@
+package info.kgeorgiy.ja.urazov.implementor;
+
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+
+import java.io.IOException;
+import java.lang.module.Configuration;
+import java.lang.module.ModuleFinder;
+import java.lang.module.ModuleReader;
+import java.lang.module.ModuleReference;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finder of types which {@link Implementor} can implement, i.e. interfaces and abstract classes,
+ * in a jar file or a module. Classes are loaded without being initialized.
+ *
+ * @author Timur Urazov
+ */
+public final class ImplementorScanner {
+    /**
+     * Suffix of class file names
+     */
+    private static final String CLASS_SUFFIX = Implementor.Decoration.CLASS_FILE;
+
+    /**
+     * Utility class
+     */
+    private ImplementorScanner() {
+    }
+
+    /**
+     * Loads implementable types of given jar file. The returned classes are defined by a class
+     * loader which keeps jar file open.
+     *
+     * @param jar jar file to be scanned
+     * @param parent parent of class loader of jar file
+     * @return implementable types in order of jar entries
+     * @throws ImplerException if jar file can not be read
+     */
+    public static List<Class<?>> scanJar(final Path jar, final ClassLoader parent) throws ImplerException {
+        final URLClassLoader loader;
+        try {
+            loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, parent);
+        } catch (final MalformedURLException e) {
+            throw new ImplerException("Invalid jar file path " + jar + ". " + e.getMessage());
+        }
+        try (final JarFile file = new JarFile(jar.toFile())) {
+            return load(file.stream().map(JarEntry::getName), name -> Class.forName(name, false, loader));
+        } catch (final IOException e) {
+            throw new ImplerException("Error while reading jar file " + jar + ". " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads implementable types of exported packages of given module
+     *
+     * @param moduleName name of module
+     * @param modulePath module path where module and its dependencies are located or {@code null}
+     * for system modules
+     * @return implementable types in order of module resources
+     * @throws ImplerException if module can not be found, resolved or read
+     */
+    public static List<Class<?>> scanModule(final String moduleName, final Path modulePath) throws ImplerException {
+        final ModuleFinder finder = modulePath == null ? ModuleFinder.ofSystem() : ModuleFinder.of(modulePath);
+        final ModuleReference reference = finder.find(moduleName)
+                .orElseThrow(() -> new ImplerException("Module not found: " + moduleName));
+        final Module module;
+        try {
+            module = ModuleLayer.boot().findModule(moduleName).orElseGet(() -> {
+                final Configuration configuration = ModuleLayer.boot().configuration()
+                        .resolve(finder, ModuleFinder.of(), Set.of(moduleName));
+                return ModuleLayer.boot()
+                        .defineModulesWithOneLoader(configuration, ClassLoader.getSystemClassLoader())
+                        .findModule(moduleName).orElseThrow();
+            });
+        } catch (final RuntimeException | LinkageError e) {
+            throw new ImplerException("Cannot resolve module " + moduleName + ". " + e.getMessage());
+        }
+
+        try (final ModuleReader reader = reference.open()) {
+            return load(reader.list(), name -> {
+                if (!module.isExported(name.substring(0, Math.max(name.lastIndexOf('.'), 0)))) {
+                    return null;
+                }
+                final Class<?> token = Class.forName(module, name);
+                if (token == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return token;
+            });
+        } catch (final IOException e) {
+            throw new ImplerException("Error while reading module " + moduleName + ". " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads implementable types among classes given by resource names. Classes which can not
+     * be loaded are skipped.
+     *
+     * @param resources names of resources
+     * @param loader class loader by binary name, which may return {@code null} to skip class
+     * @return implementable types
+     */
+    private static List<Class<?>> load(final Stream<String> resources, final Loader loader) {
+        return resources
+                .filter(name -> name.endsWith(CLASS_SUFFIX)
+                        && !name.endsWith("module-info" + CLASS_SUFFIX)
+                        && !name.endsWith("package-info" + CLASS_SUFFIX))
+                .map(name -> name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.'))
+                .<Class<?>>map(name -> {
+                    try {
+                        return loader.load(name);
+                    } catch (final ClassNotFoundException | LinkageError e) {
+                        return null;
+                    }
+                })
+                .filter(token -> token != null && isImplementable(token))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks whether type may be implemented: it should be non-private interface or abstract
+     * class, which is not an annotation, is not sealed and, if nested, does not require
+     * enclosing instance
+     *
+     * @param token type token
+     * @return {@code true} if type is implementable
+     */
+    static boolean isImplementable(final Class<?> token) {
+        final int modifiers = token.getModifiers();
+        return (token.isInterface() || Modifier.isAbstract(modifiers) && !token.isEnum())
+                && !token.isAnnotation() && !token.isSealed() && !token.isArray() && !token.isPrimitive()
+                && !token.isAnonymousClass() && !token.isLocalClass()
+                && !Modifier.isPrivate(modifiers)
+                && (!token.isMemberClass() || token.isInterface() || Modifier.isStatic(modifiers));
+    }
+
+    /**
+     * Class loader by binary name
+     */
+    @FunctionalInterface
+    private interface Loader {
+        /**
+         * Loads class without initializing it
+         *
+         * @param name binary name of class
+         * @return loaded class or {@code null} to skip it
+         * @throws ClassNotFoundException if class can not be found
+         */
+        Class<?> load(String name) throws ClassNotFoundException;
+    }
+}
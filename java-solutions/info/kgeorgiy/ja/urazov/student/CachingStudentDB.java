@@ -0,0 +1,260 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.java.advanced.student.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Caching decorator of {@link AdvancedQuery}. Results are keyed by identity of the collection,
+ * query and its arguments, and evicted in least-recently-used order when cache is full.
+ * <p>
+ * {@link LiveStudentDB.Snapshot Snapshots} of a {@link LiveStudentDB} are keyed by the roster and its
+ * version instead, so that equal versions share results and results of older versions are evicted
+ * once a newer version is queried. Modifications of other collections are not observed:
+ * after such a collection has changed, {@link #invalidate(Collection)} must be called for it.
+ * Cached results are unmodifiable.
+ */
+public class CachingStudentDB implements AdvancedQuery {
+    private final AdvancedQuery delegate;
+    private final Map<Key, Object> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates cache over given queries
+     *
+     * @param delegate queries to be cached
+     * @param capacity maximal number of cached results
+     */
+    public CachingStudentDB(final AdvancedQuery delegate, final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.delegate = delegate;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Object> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Creates cache over {@link StudentDB}
+     *
+     * @param capacity maximal number of cached results
+     */
+    public CachingStudentDB(final int capacity) {
+        this(new StudentDB(), capacity);
+    }
+
+    /**
+     * Drops all cached results for given collection
+     *
+     * @param students modified collection
+     */
+    public void invalidate(final Collection<Student> students) {
+        final Object source = students instanceof final LiveStudentDB.Snapshot snapshot
+                ? snapshot.source()
+                : students;
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.source() == source);
+        }
+    }
+
+    /**
+     * Drops all cached results
+     */
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns number of queries answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns number of queries passed to the delegate
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public List<String> getFirstNames(final List<Student> students) {
+        return cached(students, "getFirstNames", null, () -> delegate.getFirstNames(students));
+    }
+
+    @Override
+    public List<String> getLastNames(final List<Student> students) {
+        return cached(students, "getLastNames", null, () -> delegate.getLastNames(students));
+    }
+
+    @Override
+    public List<GroupName> getGroups(final List<Student> students) {
+        return cached(students, "getGroups", null, () -> delegate.getGroups(students));
+    }
+
+    @Override
+    public List<String> getFullNames(final List<Student> students) {
+        return cached(students, "getFullNames", null, () -> delegate.getFullNames(students));
+    }
+
+    @Override
+    public Set<String> getDistinctFirstNames(final List<Student> students) {
+        return cached(students, "getDistinctFirstNames", null, () -> delegate.getDistinctFirstNames(students));
+    }
+
+    @Override
+    public String getMaxStudentFirstName(final List<Student> students) {
+        return cached(students, "getMaxStudentFirstName", null, () -> delegate.getMaxStudentFirstName(students));
+    }
+
+    @Override
+    public List<Student> sortStudentsById(final Collection<Student> students) {
+        return cached(students, "sortStudentsById", null, () -> delegate.sortStudentsById(students));
+    }
+
+    @Override
+    public List<Student> sortStudentsByName(final Collection<Student> students) {
+        return cached(students, "sortStudentsByName", null, () -> delegate.sortStudentsByName(students));
+    }
+
+    @Override
+    public List<Student> findStudentsByFirstName(final Collection<Student> students, final String name) {
+        return cached(students, "findStudentsByFirstName", name,
+                () -> delegate.findStudentsByFirstName(students, name));
+    }
+
+    @Override
+    public List<Student> findStudentsByLastName(final Collection<Student> students, final String name) {
+        return cached(students, "findStudentsByLastName", name,
+                () -> delegate.findStudentsByLastName(students, name));
+    }
+
+    @Override
+    public List<Student> findStudentsByGroup(final Collection<Student> students, final GroupName group) {
+        return cached(students, "findStudentsByGroup", group,
+                () -> delegate.findStudentsByGroup(students, group));
+    }
+
+    @Override
+    public Map<String, String> findStudentNamesByGroup(final Collection<Student> students, final GroupName group) {
+        return cached(students, "findStudentNamesByGroup", group,
+                () -> delegate.findStudentNamesByGroup(students, group));
+    }
+
+    @Override
+    public List<Group> getGroupsByName(final Collection<Student> students) {
+        return cached(students, "getGroupsByName", null, () -> delegate.getGroupsByName(students));
+    }
+
+    @Override
+    public List<Group> getGroupsById(final Collection<Student> students) {
+        return cached(students, "getGroupsById", null, () -> delegate.getGroupsById(students));
+    }
+
+    @Override
+    public GroupName getLargestGroup(final Collection<Student> students) {
+        return cached(students, "getLargestGroup", null, () -> delegate.getLargestGroup(students));
+    }
+
+    @Override
+    public GroupName getLargestGroupFirstName(final Collection<Student> students) {
+        return cached(students, "getLargestGroupFirstName", null, () -> delegate.getLargestGroupFirstName(students));
+    }
+
+    @Override
+    public String getMostPopularName(final Collection<Student> students) {
+        return cached(students, "getMostPopularName", null, () -> delegate.getMostPopularName(students));
+    }
+
+    @Override
+    public List<String> getFirstNames(final Collection<Student> students, final int[] indices) {
+        return cached(students, "getFirstNames", indices(indices), () -> delegate.getFirstNames(students, indices));
+    }
+
+    @Override
+    public List<String> getLastNames(final Collection<Student> students, final int[] indices) {
+        return cached(students, "getLastNames", indices(indices), () -> delegate.getLastNames(students, indices));
+    }
+
+    @Override
+    public List<GroupName> getGroups(final Collection<Student> students, final int[] indices) {
+        return cached(students, "getGroups", indices(indices), () -> delegate.getGroups(students, indices));
+    }
+
+    @Override
+    public List<String> getFullNames(final Collection<Student> students, final int[] indices) {
+        return cached(students, "getFullNames", indices(indices), () -> delegate.getFullNames(students, indices));
+    }
+
+    private static List<Integer> indices(final int[] indices) {
+        return Arrays.stream(indices).boxed().collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R cached(final Collection<Student> students, final String query,
+                         final Object argument, final Supplier<R> supplier) {
+        final Key key = students instanceof final LiveStudentDB.Snapshot snapshot
+                ? new Key(snapshot.source(), snapshot.version(), query, argument)
+                : new Key(students, 0, query, argument);
+        synchronized (cache) {
+            if (cache.containsKey(key)) {
+                hits.incrementAndGet();
+                return (R) cache.get(key);
+            }
+        }
+        misses.incrementAndGet();
+        final R result = unmodifiable(supplier.get());
+        synchronized (cache) {
+            if (students instanceof LiveStudentDB.Snapshot) {
+                cache.keySet().removeIf(k -> k.source() == key.source() && k.version() < key.version());
+            }
+            cache.put(key, result);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R unmodifiable(final R result) {
+        if (result instanceof final List<?> list) {
+            return (R) Collections.unmodifiableList(list);
+        } else if (result instanceof final SortedSet<?> set) {
+            return (R) Collections.unmodifiableSortedSet(set);
+        } else if (result instanceof final Set<?> set) {
+            return (R) Collections.unmodifiableSet(set);
+        } else if (result instanceof final Map<?, ?> map) {
+            return (R) Collections.unmodifiableMap(map);
+        }
+        return result;
+    }
+
+    /**
+     * Cache key, which compares sources, i.e. collections or rosters, by identity
+     */
+    private record Key(Object source, long version, String query, Object argument) {
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(source), version, query, argument);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof final Key that
+                    && source == that.source
+                    && version == that.version
+                    && query.equals(that.query)
+                    && Objects.equals(argument, that.argument);
+        }
+    }
+}
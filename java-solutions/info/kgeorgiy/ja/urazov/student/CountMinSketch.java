@@ -0,0 +1,71 @@
+package info.kgeorgiy.ja.urazov.student;
+
+/**
+ * Count-Min sketch estimating frequencies of elements by their 64-bit hashes.
+ * Estimates never underestimate and exceed true frequency by at most {@code e * total / width}
+ * with probability {@code 1 - exp(-depth)}. Sketches of the same dimensions can be merged.
+ */
+public final class CountMinSketch {
+    private final int width;
+    private final long[][] counts;
+
+    /**
+     * Creates an empty sketch
+     *
+     * @param width number of counters in a row
+     * @param depth number of rows
+     */
+    public CountMinSketch(final int width, final int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Width and depth must be positive");
+        }
+        this.width = width;
+        counts = new long[depth][width];
+    }
+
+    /**
+     * Adds {@code count} occurrences of element given by its hash
+     *
+     * @param hash well-mixed 64-bit hash of element
+     * @param count number of occurrences
+     */
+    public void add(final long hash, final long count) {
+        for (int row = 0; row < counts.length; row++) {
+            counts[row][index(hash, row)] += count;
+        }
+    }
+
+    /**
+     * Returns estimated frequency of element given by its hash
+     *
+     * @param hash well-mixed 64-bit hash of element
+     */
+    public long estimate(final long hash) {
+        long result = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            result = Math.min(result, counts[row][index(hash, row)]);
+        }
+        return result;
+    }
+
+    /**
+     * Adds all elements of other sketch to this one
+     *
+     * @param other sketch of the same dimensions
+     */
+    public void merge(final CountMinSketch other) {
+        if (other.width != width || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge sketches of different dimensions");
+        }
+        for (int row = 0; row < counts.length; row++) {
+            for (int column = 0; column < width; column++) {
+                counts[row][column] += other.counts[row][column];
+            }
+        }
+    }
+
+    // Row hashes are derived from two halves of the hash: h1 + row * h2
+    private int index(final long hash, final int row) {
+        return Math.floorMod((int) hash + row * (int) (hash >>> Integer.SIZE), width);
+    }
+}
@@ -0,0 +1,78 @@
+package info.kgeorgiy.ja.urazov.student;
+
+/**
+ * HyperLogLog sketch estimating number of distinct elements by their 64-bit hashes
+ * using {@code 2^precision} bytes of memory. Relative error is about
+ * {@code 1.04 / sqrt(2^precision)}. Sketches of the same precision can be merged.
+ */
+public final class HyperLogLog {
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Creates an empty sketch
+     *
+     * @param precision number of hash bits used to choose register, from 4 to 18
+     */
+    public HyperLogLog(final int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be in range [4, 18]: " + precision);
+        }
+        this.precision = precision;
+        registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds element given by its hash
+     *
+     * @param hash well-mixed 64-bit hash of element
+     */
+    public void add(final long hash) {
+        final int index = (int) (hash >>> (Long.SIZE - precision));
+        // Sentinel bit bounds rank by number of remaining bits
+        final int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Returns estimated number of distinct added elements
+     */
+    public long estimate() {
+        final int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (final byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        final double estimate = alpha(m) * m * m / sum;
+        return Math.round(estimate <= 2.5 * m && zeros > 0 ? m * Math.log((double) m / zeros) : estimate);
+    }
+
+    /**
+     * Adds all elements of other sketch to this one
+     *
+     * @param other sketch of the same precision
+     */
+    public void merge(final HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of different precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+        }
+    }
+
+    private static double alpha(final int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+}
@@ -0,0 +1,226 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+
+/**
+ * Mutable roster of students identified by {@link Student#getId() id}, which maintains
+ * aggregates of {@link StudentDB} incrementally, so that
+ * {@link #getLargestGroup()}, {@link #getLargestGroupFirstName()} and {@link #getMostPopularName()}
+ * are answered without traversing the roster. All methods are thread-safe.
+ * <p>
+ * Every modification increments {@link #getVersion() version} of the roster, which is carried by
+ * {@link #getStudents() snapshots}, so that {@link CachingStudentDB} drops results of older versions.
+ */
+public class LiveStudentDB {
+    private final Map<Integer, Student> students = new HashMap<>();
+    private long version;
+    private Snapshot snapshot;
+
+    private final Map<GroupName, Map<String, Integer>> groupFirstNames = new HashMap<>();
+    private final Map<String, Map<GroupName, Integer>> nameGroups = new HashMap<>();
+
+    private final Ranking<GroupName> groupSizes = new Ranking<>(Comparator.naturalOrder());
+    private final Ranking<GroupName> groupDistinctNames = new Ranking<>(Comparator.reverseOrder());
+    private final Ranking<String> namePopularity = new Ranking<>(Comparator.naturalOrder());
+
+    /**
+     * Creates an empty roster
+     */
+    public LiveStudentDB() {
+    }
+
+    /**
+     * Creates a roster containing given students
+     *
+     * @param students initial students
+     * @throws IllegalArgumentException if ids of students are not unique
+     */
+    public LiveStudentDB(final Collection<Student> students) {
+        students.forEach(this::add);
+    }
+
+    /**
+     * Adds student to the roster
+     *
+     * @param student student to be added
+     * @throws IllegalArgumentException if student with the same id is already present
+     */
+    public synchronized void add(final Student student) {
+        if (students.putIfAbsent(student.getId(), student) != null) {
+            throw new IllegalArgumentException("Student with id " + student.getId() + " already exists");
+        }
+        version++;
+        account(student, 1);
+    }
+
+    /**
+     * Removes student with given id from the roster
+     *
+     * @param id id of student to be removed
+     * @return removed student or {@code null} if there was no student with such id
+     */
+    public synchronized Student remove(final int id) {
+        final Student removed = students.remove(id);
+        if (removed != null) {
+            version++;
+            account(removed, -1);
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces student having the same id as given one or adds it if there is no such student
+     *
+     * @param student new version of the student
+     * @return previous version of the student or {@code null} if it was added
+     */
+    public synchronized Student update(final Student student) {
+        final Student previous = students.put(student.getId(), student);
+        version++;
+        if (previous != null) {
+            account(previous, -1);
+        }
+        account(student, 1);
+        return previous;
+    }
+
+    /**
+     * Returns number of modifications of the roster
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns unmodifiable snapshot of the roster. Snapshot is shared until the roster is modified.
+     */
+    public synchronized Snapshot getStudents() {
+        if (snapshot == null || snapshot.version() != version) {
+            snapshot = new Snapshot(this, version, List.copyOf(students.values()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Same as {@link StudentDB#getLargestGroup(Collection)} for the current roster
+     */
+    public synchronized GroupName getLargestGroup() {
+        return groupSizes.best(null);
+    }
+
+    /**
+     * Same as {@link StudentDB#getLargestGroupFirstName(Collection)} for the current roster
+     */
+    public synchronized GroupName getLargestGroupFirstName() {
+        return groupDistinctNames.best(null);
+    }
+
+    /**
+     * Same as {@link StudentDB#getMostPopularName(Collection)} for the current roster
+     */
+    public synchronized String getMostPopularName() {
+        return namePopularity.best("");
+    }
+
+    private void account(final Student student, final int delta) {
+        final GroupName group = student.getGroup();
+        final String name = student.getFirstName();
+        groupSizes.change(group, delta);
+        if (changesDistinct(groupFirstNames, group, name, delta)) {
+            groupDistinctNames.change(group, delta);
+        }
+        if (changesDistinct(nameGroups, name, group, delta)) {
+            namePopularity.change(name, delta);
+        }
+    }
+
+    /**
+     * Changes multiplicity of {@code value} in multiset of {@code key}
+     *
+     * @return {@code true} if value appeared in or disappeared from the multiset
+     */
+    private static <K, V> boolean changesDistinct(final Map<K, Map<V, Integer>> multisets,
+                                                  final K key, final V value, final int delta) {
+        final Map<V, Integer> multiset = multisets.computeIfAbsent(key, k -> new HashMap<>());
+        final int count = multiset.merge(value, delta, Integer::sum);
+        if (count == 0) {
+            multiset.remove(value);
+            if (multiset.isEmpty()) {
+                multisets.remove(key);
+            }
+        }
+        return count == 0 || count == delta;
+    }
+
+    /**
+     * Keys ordered by their scores, ties are ordered by given order
+     *
+     * @param <T> type of keys
+     */
+    private static final class Ranking<T> {
+        private final Map<T, Integer> scores = new HashMap<>();
+        private final NavigableSet<T> order;
+
+        private Ranking(final Comparator<? super T> tieOrder) {
+            order = new TreeSet<>(Comparator.<T>comparingInt(scores::get).thenComparing(tieOrder));
+        }
+
+        private void change(final T key, final int delta) {
+            if (scores.containsKey(key)) {
+                order.remove(key);
+            }
+            final int score = scores.merge(key, delta, Integer::sum);
+            if (score == 0) {
+                scores.remove(key);
+            } else {
+                order.add(key);
+            }
+        }
+
+        private T best(final T def) {
+            return order.isEmpty() ? def : order.last();
+        }
+    }
+
+    /**
+     * Unmodifiable list of students of the roster at given version
+     */
+    public static final class Snapshot extends AbstractList<Student> implements RandomAccess {
+        private final LiveStudentDB source;
+        private final long version;
+        private final List<Student> students;
+
+        private Snapshot(final LiveStudentDB source, final long version, final List<Student> students) {
+            this.source = source;
+            this.version = version;
+            this.students = students;
+        }
+
+        /**
+         * Returns the roster this snapshot was taken of
+         */
+        public LiveStudentDB source() {
+            return source;
+        }
+
+        /**
+         * Returns {@link LiveStudentDB#getVersion() version} of the roster this snapshot was taken at
+         */
+        public long version() {
+            return version;
+        }
+
+        @Override
+        public Student get(final int index) {
+            return students.get(index);
+        }
+
+        @Override
+        public int size() {
+            return students.size();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Space-Saving summary tracking most frequent elements with a bounded number of counters.
+ * Every element occurring more than {@code total / capacity} times is tracked, its count is
+ * overestimated by at most {@link Estimate#error()}. Summaries can be merged.
+ *
+ * @param <T> type of elements
+ */
+public final class SpaceSaving<T> {
+    private final int capacity;
+    private final Map<T, Counter<T>> counters = new HashMap<>();
+    private final NavigableSet<Counter<T>> order = new TreeSet<>(
+            Comparator.<Counter<T>>comparingLong(counter -> counter.count)
+                    .thenComparingLong(counter -> counter.sequence));
+    private long sequence;
+
+    /**
+     * Estimated frequency of an element
+     *
+     * @param item element
+     * @param count estimated frequency, never less than the true one
+     * @param error maximal overestimation of frequency
+     * @param <T> type of element
+     */
+    public record Estimate<T>(T item, long count, long error) {
+    }
+
+    /**
+     * Creates an empty summary
+     *
+     * @param capacity maximal number of tracked elements
+     */
+    public SpaceSaving(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds single occurrence of element
+     */
+    public void add(final T item) {
+        add(item, 1, 0);
+    }
+
+    /**
+     * Returns at most {@code n} tracked elements with the greatest estimated frequencies
+     * in descending order of frequency
+     */
+    public List<Estimate<T>> top(final int n) {
+        return order.descendingSet().stream()
+                .limit(n)
+                .map(counter -> new Estimate<>(counter.item, counter.count, counter.error))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adds all elements of other summary to this one. Elements missing in a full summary
+     * are accounted with its minimal count as possible error.
+     *
+     * @param other summary to be merged
+     */
+    public void merge(final SpaceSaving<T> other) {
+        final long missingHere = minCount();
+        final long missingThere = other.minCount();
+        final Map<T, Estimate<T>> merged = new HashMap<>();
+        for (final Counter<T> counter : counters.values()) {
+            merged.put(counter.item, new Estimate<>(counter.item, counter.count + missingThere,
+                    counter.error + missingThere));
+        }
+        for (final Counter<T> counter : other.counters.values()) {
+            merged.merge(counter.item,
+                    new Estimate<>(counter.item, counter.count + missingHere, counter.error + missingHere),
+                    (here, there) -> new Estimate<>(here.item(),
+                            here.count() - missingThere + there.count() - missingHere,
+                            here.error() - missingThere + there.error() - missingHere));
+        }
+
+        counters.clear();
+        order.clear();
+        merged.values().stream()
+                .sorted(Comparator.comparingLong(Estimate<T>::count).reversed())
+                .limit(capacity)
+                .forEach(estimate -> add(estimate.item(), estimate.count(), estimate.error()));
+    }
+
+    private void add(final T item, final long count, final long error) {
+        Counter<T> counter = counters.get(item);
+        if (counter != null) {
+            order.remove(counter);
+            counter.count += count;
+            counter.error += error;
+        } else if (counters.size() < capacity) {
+            counter = new Counter<>(item, count, error);
+            counters.put(item, counter);
+        } else {
+            // Replace the least frequent element, inheriting its count as error
+            counter = order.pollFirst();
+            counters.remove(counter.item);
+            counter = new Counter<>(item, counter.count + count, counter.count + error);
+            counters.put(item, counter);
+        }
+        counter.sequence = sequence++;
+        order.add(counter);
+    }
+
+    // Frequency bound of untracked elements
+    private long minCount() {
+        return counters.size() < capacity ? 0 : order.first().count;
+    }
+
+    private static final class Counter<T> {
+        private final T item;
+        private long count;
+        private long error;
+        private long sequence;
+
+        private Counter(final T item, final long count, final long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
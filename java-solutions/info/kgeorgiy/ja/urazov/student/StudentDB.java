@@ -5,9 +5,10 @@ import info.kgeorgiy.java.advanced.student.*;
 import java.util.*;
 import java.util.function.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class StudentDB implements AdvancedQuery {
-    private final static Comparator<Student> NAME_COMPARATOR =
+    final static Comparator<Student> NAME_COMPARATOR =
             Comparator
                     .comparing(Student::getLastName)
                     .thenComparing(Student::getFirstName)
@@ -18,26 +19,40 @@ public class StudentDB implements AdvancedQuery {
 
     @Override
     public List<String> getFirstNames(final List<Student> students) {
-        return getCommonInfo(students, Student::getFirstName);
+        return getCommonInfo(students, Student::getFirstName, table -> table.firstNames().values());
     }
 
     @Override
     public List<String> getLastNames(final List<Student> students) {
-        return getCommonInfo(students, Student::getLastName);
+        return getCommonInfo(students, Student::getLastName, table -> table.lastNames().values());
     }
 
     @Override
     public List<GroupName> getGroups(final List<Student> students) {
-        return getCommonInfo(students, Student::getGroup);
+        return getCommonInfo(students, Student::getGroup, table -> table.groups().values());
     }
 
     @Override
     public List<String> getFullNames(final List<Student> students) {
-        return getCommonInfo(students, GET_FULL_NAME);
+        return getCommonInfo(students, GET_FULL_NAME, StudentTable::fullNames);
     }
 
-    private static <T> List<T> getCommonInfo(final List<Student> students, final Function<Student, T> mappingFunction) {
-        return students.stream().map(mappingFunction).collect(Collectors.toList());
+    private static <T> List<T> getCommonInfo(
+            final List<Student> students,
+            final Function<Student, T> mappingFunction,
+            final Function<StudentTable, List<T>> columnar) {
+        return query(students, columnar, () -> students.stream().map(mappingFunction).collect(Collectors.toList()));
+    }
+
+    /**
+     * Runs columnar version of the query if students are stored in {@link StudentTable},
+     * otherwise falls back to the object version
+     */
+    private static <R> R query(
+            final Collection<Student> students,
+            final Function<StudentTable, R> columnar,
+            final Supplier<R> fallback) {
+        return students instanceof final StudentTable table ? columnar.apply(table) : fallback.get();
     }
 
     // :NOTE: Константа
@@ -46,12 +61,14 @@ public class StudentDB implements AdvancedQuery {
 
     @Override
     public Set<String> getDistinctFirstNames(final List<Student> students) {
-        return students.stream().map(Student::getFirstName).collect(Collectors.toCollection(TreeSet::new));
+        return query(students, table -> new TreeSet<>(table.firstNames().distinct()),
+                () -> students.stream().map(Student::getFirstName).collect(Collectors.toCollection(TreeSet::new)));
     }
 
     @Override
     public String getMaxStudentFirstName(final List<Student> students) {
-        return getMaxAndMap(students, ID_COMPARATOR, Student::getFirstName, "");
+        return query(students, table -> table.maxIdFirstName(""),
+                () -> getMaxAndMap(students, ID_COMPARATOR, Student::getFirstName, ""));
     }
 
     @Override
@@ -71,39 +88,197 @@ public class StudentDB implements AdvancedQuery {
 
     @Override
     public List<Student> findStudentsByFirstName(final Collection<Student> students, final String name) {
-        return find(students, name, Student::getFirstName);
+        return find(students, name, Student::getFirstName, StudentTable::firstNames);
     }
 
     @Override
     public List<Student> findStudentsByLastName(final Collection<Student> students, final String name) {
-        return find(students, name, Student::getLastName);
+        return find(students, name, Student::getLastName, StudentTable::lastNames);
     }
 
     @Override
     public List<Student> findStudentsByGroup(final Collection<Student> students, final GroupName group) {
-        return find(students, group, Student::getGroup);
+        return find(students, group, Student::getGroup, StudentTable::groups);
+    }
+
+    /**
+     * Returns at most {@code limit} students having specified first name, skipping {@code offset}
+     * first ones. Students are ordered by name.
+     */
+    public List<Student> findStudentsByFirstName(final Collection<Student> students, final String name,
+                                                 final int offset, final int limit) {
+        return findPage(students, name, Student::getFirstName, StudentTable::firstNames, offset, limit);
+    }
+
+    /**
+     * Returns at most {@code limit} students having specified last name, skipping {@code offset}
+     * first ones. Students are ordered by name.
+     */
+    public List<Student> findStudentsByLastName(final Collection<Student> students, final String name,
+                                                final int offset, final int limit) {
+        return findPage(students, name, Student::getLastName, StudentTable::lastNames, offset, limit);
+    }
+
+    /**
+     * Returns at most {@code limit} students having specified group, skipping {@code offset}
+     * first ones. Students are ordered by name.
+     */
+    public List<Student> findStudentsByGroup(final Collection<Student> students, final GroupName group,
+                                             final int offset, final int limit) {
+        return findPage(students, group, Student::getGroup, StudentTable::groups, offset, limit);
+    }
+
+    /**
+     * Returns stream of students having specified first name. Students are ordered by name.
+     * The stream is lazy only for {@link StudentTable}, which walks its name index. For other
+     * collections all matching students are buffered and sorted once the stream is consumed,
+     * use paged query to bound memory there.
+     */
+    public Stream<Student> streamStudentsByFirstName(final Collection<Student> students, final String name) {
+        return findStream(students, name, Student::getFirstName, StudentTable::firstNames);
+    }
+
+    /**
+     * Returns stream of students having specified last name. Students are ordered by name.
+     * The stream is lazy only for {@link StudentTable}, which walks its name index. For other
+     * collections all matching students are buffered and sorted once the stream is consumed,
+     * use paged query to bound memory there.
+     */
+    public Stream<Student> streamStudentsByLastName(final Collection<Student> students, final String name) {
+        return findStream(students, name, Student::getLastName, StudentTable::lastNames);
+    }
+
+    /**
+     * Returns stream of students having specified group. Students are ordered by name.
+     * The stream is lazy only for {@link StudentTable}, which walks its name index. For other
+     * collections all matching students are buffered and sorted once the stream is consumed,
+     * use paged query to bound memory there.
+     */
+    public Stream<Student> streamStudentsByGroup(final Collection<Student> students, final GroupName group) {
+        return findStream(students, group, Student::getGroup, StudentTable::groups);
     }
 
     private static List<Group> getGroups(final Collection<Student> students, final UnaryOperator<List<Student>> sort) {
-        return getGroupsMap(students, TreeMap::new).entrySet().stream()
+        return toGroups(getGroupsMap(students, TreeMap::new), sort);
+    }
+
+    /**
+     * Returns estimated number of distinct student first names using {@link HyperLogLog}
+     * of given precision
+     */
+    public long getDistinctFirstNamesEstimate(final Collection<Student> students, final int precision) {
+        final HyperLogLog sketch = new HyperLogLog(precision);
+        students.forEach(student -> sketch.add(StudentSketch.hash(student.getFirstName())));
+        return sketch.estimate();
+    }
+
+    /**
+     * Approximate version of {@link #getMostPopularName(Collection)} using memory bounded by
+     * number of candidates: first pass selects most frequent first names by {@link SpaceSaving},
+     * second pass counts groups of the candidates only
+     *
+     * @param students students to be queried
+     * @param candidates number of most frequent names to be considered
+     * @return name having maximal number of groups among candidates
+     */
+    public String getMostPopularNameEstimate(final Collection<Student> students, final int candidates) {
+        final SpaceSaving<String> frequent = new SpaceSaving<>(candidates);
+        students.forEach(student -> frequent.add(student.getFirstName()));
+
+        final Map<String, Set<GroupName>> nameGroups = new HashMap<>();
+        frequent.top(candidates).forEach(estimate -> nameGroups.put(estimate.item(), new HashSet<>()));
+        for (final Student student : students) {
+            final Set<GroupName> groups = nameGroups.get(student.getFirstName());
+            if (groups != null) {
+                groups.add(student.getGroup());
+            }
+        }
+        return getMost(nameGroups, Set::size, Comparator.naturalOrder(), "");
+    }
+
+    private static List<Group> toGroups(final Map<GroupName, List<Student>> groups,
+                                        final UnaryOperator<List<Student>> sort) {
+        return groups.entrySet().stream()
                 .map(e -> new Group(e.getKey(), sort.apply(e.getValue())))
                 .collect(Collectors.toList());
     }
 
     @Override
     public Map<String, String> findStudentNamesByGroup(final Collection<Student> students, final GroupName group) {
-        return students.stream().filter(matching(group, Student::getGroup))
-                .collect(Collectors.toMap(Student::getLastName,
-                        Student::getFirstName,
-                        BinaryOperator.minBy(Comparator.naturalOrder())));
+        return query(students, table -> table.namesByGroup(group),
+                () -> students.stream().filter(matching(group, Student::getGroup))
+                        .collect(Collectors.toMap(Student::getLastName,
+                                Student::getFirstName,
+                                BinaryOperator.minBy(Comparator.naturalOrder()))));
     }
 
     private static <T> List<Student> find(
             final Collection<Student> students,
             final T element,
-            final Function<Student, T> function) {
-        return students.stream().filter(matching(element, function))
-                .sorted(NAME_COMPARATOR).collect(Collectors.toList());
+            final Function<Student, T> function,
+            final Function<StudentTable, StudentTable.Column<T>> column) {
+        return findStream(students, element, function, column).collect(Collectors.toList());
+    }
+
+    /**
+     * Walks name index of {@link StudentTable}, otherwise buffers and sorts all matching students
+     * when terminal operation starts
+     */
+    private static <T> Stream<Student> findStream(
+            final Collection<Student> students,
+            final T element,
+            final Function<Student, T> function,
+            final Function<StudentTable, StudentTable.Column<T>> column) {
+        return query(students, table -> table.findSortedByName(column.apply(table), element),
+                () -> students.stream().filter(matching(element, function)).sorted(NAME_COMPARATOR));
+    }
+
+    /**
+     * Walks name index of {@link StudentTable} until the page is filled, otherwise keeps
+     * bounded heap of {@code offset + limit} first matching students
+     */
+    private static <T> List<Student> findPage(
+            final Collection<Student> students,
+            final T element,
+            final Function<Student, T> function,
+            final Function<StudentTable, StudentTable.Column<T>> column,
+            final int offset,
+            final int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must be non-negative");
+        }
+        return query(students,
+                table -> table.findSortedByName(column.apply(table), element)
+                        .skip(offset).limit(limit).collect(Collectors.toList()),
+                () -> top(students.stream().filter(matching(element, function)),
+                        (int) Math.min((long) offset + limit, Integer.MAX_VALUE), NAME_COMPARATOR)
+                        .stream().skip(offset).collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns {@code k} least elements of the stream in ascending order using heap of size {@code k}.
+     * Equal elements keep encounter order, as in {@link Stream#sorted(Comparator)}.
+     */
+    private static <T> List<T> top(final Stream<T> stream, final int k, final Comparator<? super T> comparator) {
+        final Comparator<Ranked<T>> order = Comparator.<Ranked<T>, T>comparing(Ranked::element, comparator)
+                .thenComparingLong(Ranked::position);
+        final PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(order.reversed());
+        if (k > 0) {
+            final Iterator<T> iterator = stream.iterator();
+            for (long position = 0; iterator.hasNext(); position++) {
+                final T element = iterator.next();
+                if (heap.size() < k) {
+                    heap.add(new Ranked<>(element, position));
+                } else if (comparator.compare(element, heap.element().element()) < 0) {
+                    heap.poll();
+                    heap.add(new Ranked<>(element, position));
+                }
+            }
+        }
+        return heap.stream().sorted(order).map(Ranked::element).collect(Collectors.toList());
+    }
+
+    private record Ranked<T>(T element, long position) {
     }
 
     private static <T> Predicate<Student> matching(final T element, final Function<Student, T> matcher) {
@@ -149,41 +324,127 @@ public class StudentDB implements AdvancedQuery {
 
     @Override
     public GroupName getLargestGroup(final Collection<Student> collection) {
-        return getMost(getGroupsMap(collection, HashMap::new), List::size, Comparator.naturalOrder(), null);
+        return query(collection, StudentTable::largestGroup,
+                () -> getMost(getGroupsMap(collection, HashMap::new), List::size, Comparator.naturalOrder(), null));
     }
 
     @Override
     public GroupName getLargestGroupFirstName(final Collection<Student> collection) {
-        return getMost(getGroupsMap(collection, HashMap::new),
-                students -> getDistinctFirstNames(students).size(), Comparator.reverseOrder(), null);
+        return query(collection, StudentTable::largestGroupFirstName,
+                () -> getMost(getGroupsMap(collection, HashMap::new),
+                        students -> getDistinctFirstNames(students).size(), Comparator.reverseOrder(), null));
     }
 
     @Override
     public String getMostPopularName(final Collection<Student> students) {
-        return getMost(getNamesMap(students), Set::size, Comparator.naturalOrder(), "");
+        return query(students, StudentTable::mostPopularName,
+                () -> getMost(getNamesMap(students), Set::size, Comparator.naturalOrder(), ""));
+    }
+
+    /**
+     * Computes requested aggregates in a single pass over students, sharing grouping state
+     * between them
+     *
+     * @param students students to aggregate
+     * @param aggregates aggregates to compute
+     * @return report containing requested aggregates, others can not be read from it
+     */
+    public StudentReport report(final Collection<Student> students, final Set<StudentReport.Aggregate> aggregates) {
+        final boolean byGroup = aggregates.contains(StudentReport.Aggregate.LARGEST_GROUP)
+                || aggregates.contains(StudentReport.Aggregate.GROUPS_BY_NAME)
+                || aggregates.contains(StudentReport.Aggregate.GROUPS_BY_ID);
+        final boolean namesByGroup = aggregates.contains(StudentReport.Aggregate.LARGEST_GROUP_FIRST_NAME);
+        final boolean groupsByName = aggregates.contains(StudentReport.Aggregate.MOST_POPULAR_NAME);
+
+        final Map<GroupName, List<Student>> groups = new TreeMap<>();
+        final Map<GroupName, Set<String>> groupNames = new HashMap<>();
+        final Map<String, Set<GroupName>> nameGroups = new HashMap<>();
+        for (final Student student : students) {
+            if (byGroup) {
+                groups.computeIfAbsent(student.getGroup(), group -> new ArrayList<>()).add(student);
+            }
+            if (namesByGroup) {
+                groupNames.computeIfAbsent(student.getGroup(), group -> new HashSet<>()).add(student.getFirstName());
+            }
+            if (groupsByName) {
+                nameGroups.computeIfAbsent(student.getFirstName(), name -> new HashSet<>()).add(student.getGroup());
+            }
+        }
+
+        return new StudentReport(
+                aggregates,
+                aggregates.contains(StudentReport.Aggregate.LARGEST_GROUP)
+                        ? getMost(groups, List::size, Comparator.naturalOrder(), null) : null,
+                namesByGroup ? getMost(groupNames, Set::size, Comparator.reverseOrder(), null) : null,
+                groupsByName ? getMost(nameGroups, Set::size, Comparator.naturalOrder(), "") : null,
+                aggregates.contains(StudentReport.Aggregate.GROUPS_BY_NAME)
+                        ? toGroups(groups, this::sortStudentsByName) : null,
+                aggregates.contains(StudentReport.Aggregate.GROUPS_BY_ID)
+                        ? toGroups(groups, this::sortStudentsById) : null);
     }
 
     @Override
     public List<String> getFirstNames(final Collection<Student> students, final int[] indices) {
-        return indicesQuery(students, indices, Student::getFirstName);
+        return indicesQuery(students, indices, Student::getFirstName, (table, rows) -> table.firstNames().values(rows));
     }
 
     @Override
     public List<String> getLastNames(final Collection<Student> students, final int[] indices) {
-        return indicesQuery(students, indices, Student::getLastName);
+        return indicesQuery(students, indices, Student::getLastName, (table, rows) -> table.lastNames().values(rows));
     }
 
     @Override
     public List<GroupName> getGroups(final Collection<Student> students, final int[] indices) {
-        return indicesQuery(students, indices, Student::getGroup);
+        return indicesQuery(students, indices, Student::getGroup, (table, rows) -> table.groups().values(rows));
     }
 
     @Override
     public List<String> getFullNames(final Collection<Student> students, final int[] indices) {
-        return indicesQuery(students, indices, GET_FULL_NAME);
+        return indicesQuery(students, indices, GET_FULL_NAME, StudentTable::fullNames);
     }
 
-    private static <T> List<T> indicesQuery(final Collection<Student> students, final int[] indices, final Function<Student, T> function) {
-        return Arrays.stream(indices).mapToObj(new ArrayList<>(students)::get).map(function).collect(Collectors.toList());
+    private static <T> List<T> indicesQuery(
+            final Collection<Student> students,
+            final int[] indices,
+            final Function<Student, T> function,
+            final BiFunction<StudentTable, int[], List<T>> columnar) {
+        return students instanceof final StudentTable table
+                ? columnar.apply(table, indices)
+                : students instanceof final List<Student> list && students instanceof RandomAccess
+                ? Arrays.stream(indices).mapToObj(list::get).map(function).collect(Collectors.toList())
+                : indicesQuerySinglePass(students, indices, function);
+    }
+
+    /**
+     * Answers indices query by a single iteration over the collection, visiting
+     * requested indices in ascending order, instead of copying it into a list
+     */
+    private static <T> List<T> indicesQuerySinglePass(
+            final Collection<Student> students,
+            final int[] indices,
+            final Function<Student, T> function) {
+        // Index in high half, position in result in low half: sorting orders by index only
+        final long[] order = new long[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            order[i] = ((long) indices[i] << Integer.SIZE) | i;
+        }
+        Arrays.sort(order);
+
+        final List<T> result = new ArrayList<>(Collections.nCopies(indices.length, null));
+        final Iterator<Student> iterator = students.iterator();
+        final int size = students.size();
+        Student current = null;
+        for (int i = 0, position = -1; i < order.length; i++) {
+            final int index = (int) (order[i] >> Integer.SIZE);
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            while (position < index) {
+                current = iterator.next();
+                position++;
+            }
+            result.set((int) order[i], function.apply(current));
+        }
+        return result;
     }
 }
@@ -0,0 +1,280 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.ja.urazov.concurrent.ParallelMapperImpl;
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Loads students from large files.
+ * <p>
+ * CSV files contain one student per line: {@code id,firstName,lastName,group}, encoded in UTF-8,
+ * without quoting. A first line which does not start with an id is treated as a header.
+ * File is memory-mapped and split into chunks at line boundaries, which are parsed in parallel.
+ * Equal names and groups share a single instance.
+ * <p>
+ * Snapshots are binary files written by {@link #writeSnapshot(Collection, Path)}, storing name and
+ * group dictionaries followed by fixed-size rows of {@code int} codes.
+ */
+public final class StudentLoader {
+    private static final int SNAPSHOT_MAGIC = 0x53544442;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // Every chunk is mapped separately and mapping is limited by Integer.MAX_VALUE
+    private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private StudentLoader() {
+    }
+
+    /**
+     * Reads students from CSV file
+     *
+     * @param file file to read
+     * @param threads number of threads parsing the file
+     * @return students in file order
+     * @throws IOException if file cannot be read or is malformed
+     * @throws InterruptedException if parsing was interrupted
+     */
+    public static List<Student> loadCsv(final Path file, final int threads)
+            throws IOException, InterruptedException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             final ParallelMapperImpl mapper = new ParallelMapperImpl(threads)) {
+            final Interner interner = new Interner();
+            final List<List<Student>> chunks = mapper.map(chunk -> chunk.parse(channel, interner),
+                    split(channel, threads));
+            final List<Student> students = new ArrayList<>(chunks.stream().mapToInt(List::size).sum());
+            chunks.forEach(students::addAll);
+            return students;
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads students from CSV file into {@link StudentTable}
+     *
+     * @see #loadCsv(Path, int)
+     */
+    public static StudentTable loadCsvTable(final Path file, final int threads)
+            throws IOException, InterruptedException {
+        return new StudentTable(loadCsv(file, threads));
+    }
+
+    /**
+     * Writes students to binary snapshot
+     *
+     * @param students students to be written
+     * @param file snapshot file
+     * @throws IOException if error occurred while writing
+     */
+    public static void writeSnapshot(final Collection<Student> students, final Path file) throws IOException {
+        final StudentTable table = students instanceof final StudentTable t ? t : new StudentTable(students);
+        try (final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            writeDictionary(out, table.firstNames().distinct());
+            writeDictionary(out, table.lastNames().distinct());
+            writeDictionary(out, table.groups().distinct().stream().map(GroupName::name).collect(Collectors.toList()));
+            out.writeInt(table.size());
+            for (int row = 0; row < table.size(); row++) {
+                out.writeInt(table.get(row).getId());
+                out.writeInt(table.firstNames().codeAt(row));
+                out.writeInt(table.lastNames().codeAt(row));
+                out.writeInt(table.groups().codeAt(row));
+            }
+        }
+    }
+
+    /**
+     * Reads students from binary snapshot
+     *
+     * @param file snapshot file
+     * @return students in the order they were written
+     * @throws IOException if file cannot be read or is not a snapshot
+     */
+    public static List<Student> readSnapshot(final Path file) throws IOException {
+        try (final DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a student snapshot: '" + file + "'.");
+            }
+            final String[] firstNames = readDictionary(in);
+            final String[] lastNames = readDictionary(in);
+            final GroupName[] groups = Arrays.stream(readDictionary(in))
+                    .map(GroupName::valueOf).toArray(GroupName[]::new);
+            final int size = in.readInt();
+            final List<Student> students = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                students.add(new Student(in.readInt(),
+                        firstNames[in.readInt()], lastNames[in.readInt()], groups[in.readInt()]));
+            }
+            return students;
+        } catch (final IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupted student snapshot: '" + file + "'. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads students from binary snapshot into {@link StudentTable}
+     *
+     * @see #readSnapshot(Path)
+     */
+    public static StudentTable readSnapshotTable(final Path file) throws IOException {
+        return new StudentTable(readSnapshot(file));
+    }
+
+    private static void writeDictionary(final DataOutputStream out, final List<String> dictionary)
+            throws IOException {
+        out.writeInt(dictionary.size());
+        for (final String value : dictionary) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String[] readDictionary(final DataInputStream in) throws IOException {
+        final String[] dictionary = new String[in.readInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = in.readUTF();
+        }
+        return dictionary;
+    }
+
+    /**
+     * Splits file into at least {@code parts} chunks, moving every boundary to the beginning
+     * of the next line
+     */
+    private static List<Chunk> split(final FileChannel channel, final int parts) throws IOException {
+        final long size = channel.size();
+        final long chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, (size + parts - 1) / parts));
+        final List<Chunk> chunks = new ArrayList<>();
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (long start = 0; start < size; ) {
+            final long end = start + chunkSize >= size ? size : nextLine(channel, start + chunkSize, buffer);
+            chunks.add(new Chunk(start, end, start == 0));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLine(final FileChannel channel, long position, final ByteBuffer buffer)
+            throws IOException {
+        while (true) {
+            buffer.clear();
+            if (channel.read(buffer, position) < 0) {
+                return channel.size();
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position++;
+                if (buffer.get() == '\n') {
+                    return position;
+                }
+            }
+        }
+    }
+
+    /**
+     * Shares equal names and groups between parsed students
+     */
+    private static final class Interner {
+        private final Map<String, String> names = new ConcurrentHashMap<>();
+        private final Map<String, GroupName> groups = new ConcurrentHashMap<>();
+
+        private String name(final String name) {
+            return names.computeIfAbsent(name, n -> n);
+        }
+
+        private GroupName group(final String group) {
+            return groups.computeIfAbsent(group, GroupName::valueOf);
+        }
+    }
+
+    /**
+     * Part of CSV file consisting of whole lines
+     *
+     * @param start offset of the first byte
+     * @param end offset after the last byte
+     * @param first whether chunk starts at the beginning of file and may contain header
+     */
+    private record Chunk(long start, long end, boolean first) {
+        private List<Student> parse(final FileChannel channel, final Interner interner) {
+            try {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                final List<Student> students = new ArrayList<>();
+                final String[] fields = new String[4];
+                byte[] bytes = new byte[64];
+                while (buffer.hasRemaining()) {
+                    final long lineStart = start + buffer.position();
+                    int field = 0;
+                    int length = 0;
+                    while (buffer.hasRemaining()) {
+                        final byte b = buffer.get();
+                        if (b == '\n') {
+                            break;
+                        }
+                        if (b == ',') {
+                            if (field == fields.length - 1) {
+                                throw malformed(lineStart, "too many fields");
+                            }
+                            fields[field++] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                            length = 0;
+                        } else {
+                            if (length == bytes.length) {
+                                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                            }
+                            bytes[length++] = b;
+                        }
+                    }
+                    if (length > 0 && bytes[length - 1] == '\r') {
+                        length--;
+                    }
+                    if (field == 0 && length == 0) {
+                        continue;
+                    }
+                    fields[field] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                    if (field != fields.length - 1) {
+                        throw malformed(lineStart, "expected " + fields.length + " fields");
+                    }
+                    final int id;
+                    try {
+                        id = Integer.parseInt(fields[0]);
+                    } catch (final NumberFormatException e) {
+                        if (first && students.isEmpty() && lineStart == 0) {
+                            continue;
+                        }
+                        throw malformed(lineStart, "invalid id '" + fields[0] + "'");
+                    }
+                    final GroupName group;
+                    try {
+                        group = interner.group(fields[3]);
+                    } catch (final IllegalArgumentException e) {
+                        throw malformed(lineStart, "unknown group '" + fields[3] + "'");
+                    }
+                    students.add(new Student(id, interner.name(fields[1]), interner.name(fields[2]), group));
+                }
+                return students;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static UncheckedIOException malformed(final long offset, final String message) {
+            return new UncheckedIOException(
+                    new IOException("Malformed line at offset " + offset + ": " + message));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.java.advanced.student.Group;
+import info.kgeorgiy.java.advanced.student.GroupName;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Combined result of {@link StudentDB#report(java.util.Collection, java.util.Set)}.
+ * Reading an aggregate which was not requested throws {@link IllegalStateException},
+ * so it is never confused with a {@code null} result, such as largest group of no students.
+ *
+ * @param aggregates requested aggregates
+ * @param largestGroup result of {@link StudentDB#getLargestGroup(java.util.Collection)}
+ * @param largestGroupFirstName result of {@link StudentDB#getLargestGroupFirstName(java.util.Collection)}
+ * @param mostPopularName result of {@link StudentDB#getMostPopularName(java.util.Collection)}
+ * @param groupsByName result of {@link StudentDB#getGroupsByName(java.util.Collection)}
+ * @param groupsById result of {@link StudentDB#getGroupsById(java.util.Collection)}
+ */
+public record StudentReport(
+        Set<Aggregate> aggregates,
+        GroupName largestGroup,
+        GroupName largestGroupFirstName,
+        String mostPopularName,
+        List<Group> groupsByName,
+        List<Group> groupsById) {
+
+    /**
+     * Creates report, copying set of requested aggregates
+     */
+    public StudentReport {
+        aggregates = Set.copyOf(aggregates);
+    }
+
+    /**
+     * Aggregates which can be requested in a report
+     */
+    public enum Aggregate {
+        LARGEST_GROUP,
+        LARGEST_GROUP_FIRST_NAME,
+        MOST_POPULAR_NAME,
+        GROUPS_BY_NAME,
+        GROUPS_BY_ID
+    }
+
+    /**
+     * @return result of {@link StudentDB#getLargestGroup(java.util.Collection)}
+     * @throws IllegalStateException if aggregate was not requested
+     */
+    @Override
+    public GroupName largestGroup() {
+        return requested(Aggregate.LARGEST_GROUP, largestGroup);
+    }
+
+    /**
+     * @return result of {@link StudentDB#getLargestGroupFirstName(java.util.Collection)}
+     * @throws IllegalStateException if aggregate was not requested
+     */
+    @Override
+    public GroupName largestGroupFirstName() {
+        return requested(Aggregate.LARGEST_GROUP_FIRST_NAME, largestGroupFirstName);
+    }
+
+    /**
+     * @return result of {@link StudentDB#getMostPopularName(java.util.Collection)}
+     * @throws IllegalStateException if aggregate was not requested
+     */
+    @Override
+    public String mostPopularName() {
+        return requested(Aggregate.MOST_POPULAR_NAME, mostPopularName);
+    }
+
+    /**
+     * @return result of {@link StudentDB#getGroupsByName(java.util.Collection)}
+     * @throws IllegalStateException if aggregate was not requested
+     */
+    @Override
+    public List<Group> groupsByName() {
+        return requested(Aggregate.GROUPS_BY_NAME, groupsByName);
+    }
+
+    /**
+     * @return result of {@link StudentDB#getGroupsById(java.util.Collection)}
+     * @throws IllegalStateException if aggregate was not requested
+     */
+    @Override
+    public List<Group> groupsById() {
+        return requested(Aggregate.GROUPS_BY_ID, groupsById);
+    }
+
+    private <T> T requested(final Aggregate aggregate, final T result) {
+        if (!aggregates.contains(aggregate)) {
+            throw new IllegalStateException("Aggregate was not requested: " + aggregate);
+        }
+        return result;
+    }
+}
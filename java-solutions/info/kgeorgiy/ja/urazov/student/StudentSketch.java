@@ -0,0 +1,109 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bounded-memory approximate statistics of student first names: number of distinct names,
+ * frequency of a name and the most frequent names. Sketches built over partitions
+ * of a roster can be {@link #merge(StudentSketch) merged}.
+ */
+public final class StudentSketch {
+    private static final int DEFAULT_PRECISION = 14;
+    private static final int DEFAULT_WIDTH = 2048;
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final HyperLogLog distinct;
+    private final CountMinSketch frequencies;
+    private final SpaceSaving<String> heavyHitters;
+
+    /**
+     * Creates an empty sketch
+     *
+     * @param precision precision of {@link HyperLogLog} counting distinct names
+     * @param width width of {@link CountMinSketch} estimating frequencies
+     * @param depth depth of {@link CountMinSketch} estimating frequencies
+     * @param capacity capacity of {@link SpaceSaving} tracking most frequent names
+     */
+    public StudentSketch(final int precision, final int width, final int depth, final int capacity) {
+        distinct = new HyperLogLog(precision);
+        frequencies = new CountMinSketch(width, depth);
+        heavyHitters = new SpaceSaving<>(capacity);
+    }
+
+    /**
+     * Creates an empty sketch with default parameters, using about 80 KiB of memory
+     */
+    public StudentSketch() {
+        this(DEFAULT_PRECISION, DEFAULT_WIDTH, DEFAULT_DEPTH, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates sketch with default parameters over given students
+     */
+    public static StudentSketch of(final Collection<Student> students) {
+        final StudentSketch sketch = new StudentSketch();
+        students.forEach(sketch::add);
+        return sketch;
+    }
+
+    /**
+     * Accounts given student
+     */
+    public void add(final Student student) {
+        final String name = student.getFirstName();
+        final long hash = hash(name);
+        distinct.add(hash);
+        frequencies.add(hash, 1);
+        heavyHitters.add(name);
+    }
+
+    /**
+     * Accounts all students of other sketch, which must have the same parameters
+     *
+     * @return this sketch
+     */
+    public StudentSketch merge(final StudentSketch other) {
+        distinct.merge(other.distinct);
+        frequencies.merge(other.frequencies);
+        heavyHitters.merge(other.heavyHitters);
+        return this;
+    }
+
+    /**
+     * Returns estimated number of distinct first names
+     */
+    public long distinctFirstNames() {
+        return distinct.estimate();
+    }
+
+    /**
+     * Returns estimated number of students with given first name, never less than the true one
+     */
+    public long firstNameFrequency(final String name) {
+        return frequencies.estimate(hash(name));
+    }
+
+    /**
+     * Returns at most {@code n} most frequent first names in descending order of frequency
+     */
+    public List<SpaceSaving.Estimate<String>> mostFrequentFirstNames(final int n) {
+        return heavyHitters.top(n);
+    }
+
+    /**
+     * Returns well-mixed 64-bit hash of string: FNV-1a followed by MurmurHash3 finalizer
+     */
+    static long hash(final String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
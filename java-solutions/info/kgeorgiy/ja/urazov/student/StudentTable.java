@@ -0,0 +1,252 @@
+package info.kgeorgiy.ja.urazov.student;
+
+import info.kgeorgiy.java.advanced.student.GroupName;
+import info.kgeorgiy.java.advanced.student.Student;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Immutable column-oriented list of students. Every attribute is stored in its own primitive
+ * array, names and groups are interned into dictionaries and kept as {@code int} codes, so
+ * projections and aggregates of {@link StudentDB} run over contiguous arrays instead of
+ * dereferencing {@link Student} objects.
+ */
+public final class StudentTable extends AbstractList<Student> implements RandomAccess {
+    private final Student[] students;
+    private final int[] ids;
+    private final Column<String> firstNames;
+    private final Column<String> lastNames;
+    private final Column<GroupName> groups;
+
+    // Rows ordered by name, built on first use
+    private volatile int[] nameOrder;
+
+    /**
+     * Creates table containing given students in iteration order of the collection
+     *
+     * @param students students to be stored
+     */
+    public StudentTable(final Collection<Student> students) {
+        this.students = students.toArray(Student[]::new);
+        ids = Arrays.stream(this.students).mapToInt(Student::getId).toArray();
+        firstNames = new Column<>(this.students, Student::getFirstName);
+        lastNames = new Column<>(this.students, Student::getLastName);
+        groups = new Column<>(this.students, Student::getGroup);
+    }
+
+    @Override
+    public Student get(final int index) {
+        return students[index];
+    }
+
+    @Override
+    public int size() {
+        return students.length;
+    }
+
+    Column<String> firstNames() {
+        return firstNames;
+    }
+
+    Column<String> lastNames() {
+        return lastNames;
+    }
+
+    Column<GroupName> groups() {
+        return groups;
+    }
+
+    List<String> fullNames(final int[] rows) {
+        final List<String> result = new ArrayList<>(rows.length);
+        for (final int row : rows) {
+            result.add(firstNames.get(row) + " " + lastNames.get(row));
+        }
+        return result;
+    }
+
+    List<String> fullNames() {
+        return fullNames(allRows());
+    }
+
+    /**
+     * Returns first name of the student with maximal id or {@code def} if table is empty
+     */
+    String maxIdFirstName(final String def) {
+        int max = -1;
+        for (int row = 0; row < ids.length; row++) {
+            if (max < 0 || ids[row] > ids[max]) {
+                max = row;
+            }
+        }
+        return max < 0 ? def : firstNames.get(max);
+    }
+
+    /**
+     * Returns lazy stream of students having given value in the column ordered by name
+     */
+    <T> Stream<Student> findSortedByName(final Column<T> column, final T value) {
+        final int code = column.code(value);
+        return code < 0
+                ? Stream.empty()
+                : Arrays.stream(nameOrder()).filter(row -> column.codes[row] == code).mapToObj(row -> students[row]);
+    }
+
+    private int[] nameOrder() {
+        int[] order = nameOrder;
+        if (order == null) {
+            order = IntStream.range(0, students.length).boxed()
+                    .sorted(Comparator.comparing(this::get, StudentDB.NAME_COMPARATOR))
+                    .mapToInt(Integer::intValue).toArray();
+            nameOrder = order;
+        }
+        return order;
+    }
+
+    /**
+     * Returns map of group's student last names mapped to minimal first name
+     */
+    Map<String, String> namesByGroup(final GroupName group) {
+        final int code = groups.code(group);
+        final Map<String, String> result = new HashMap<>();
+        for (int row = 0; code >= 0 && row < students.length; row++) {
+            if (groups.codes[row] == code) {
+                result.merge(lastNames.get(row), firstNames.get(row),
+                        (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns group with maximal number of students, ties are broken by greatest name
+     */
+    GroupName largestGroup() {
+        final int[] sizes = new int[groups.cardinality()];
+        for (final int code : groups.codes) {
+            sizes[code]++;
+        }
+        return groups.argMax(sizes, Comparator.naturalOrder(), null);
+    }
+
+    /**
+     * Returns group with maximal number of distinct first names, ties are broken by smallest name
+     */
+    GroupName largestGroupFirstName() {
+        return groups.argMax(
+                countDistinctPairs(groups, firstNames),
+                Comparator.reverseOrder(), null);
+    }
+
+    /**
+     * Returns first name present in maximal number of groups, ties are broken by greatest name
+     */
+    String mostPopularName() {
+        return firstNames.argMax(
+                countDistinctPairs(firstNames, groups),
+                Comparator.naturalOrder(), "");
+    }
+
+    /**
+     * For each code of {@code key} column counts distinct codes of {@code value} column
+     * occurring in the same rows
+     */
+    private int[] countDistinctPairs(final Column<?> key, final Column<?> value) {
+        final int[] counts = new int[key.cardinality()];
+        final BitSet seen = new BitSet();
+        for (int row = 0; row < students.length; row++) {
+            final int pair = key.codes[row] * value.cardinality() + value.codes[row];
+            if (!seen.get(pair)) {
+                seen.set(pair);
+                counts[key.codes[row]]++;
+            }
+        }
+        return counts;
+    }
+
+    private int[] allRows() {
+        final int[] rows = new int[students.length];
+        Arrays.setAll(rows, i -> i);
+        return rows;
+    }
+
+    /**
+     * Dictionary-encoded column: distinct values are stored once in order of first occurrence,
+     * each row keeps {@code int} code of its value
+     *
+     * @param <T> type of values
+     */
+    static final class Column<T> {
+        private final List<T> dictionary = new ArrayList<>();
+        private final Map<T, Integer> codesOf = new HashMap<>();
+        private final int[] codes;
+
+        private Column(final Student[] students, final Function<Student, T> extractor) {
+            codes = new int[students.length];
+            for (int row = 0; row < students.length; row++) {
+                codes[row] = codesOf.computeIfAbsent(extractor.apply(students[row]), value -> {
+                    dictionary.add(value);
+                    return dictionary.size() - 1;
+                });
+            }
+        }
+
+        T get(final int row) {
+            return dictionary.get(codes[row]);
+        }
+
+        int codeAt(final int row) {
+            return codes[row];
+        }
+
+        /**
+         * Returns code of given value or {@code -1} if column does not contain it
+         */
+        int code(final T value) {
+            return codesOf.getOrDefault(value, -1);
+        }
+
+        int cardinality() {
+            return dictionary.size();
+        }
+
+        /**
+         * Returns distinct values of the column
+         */
+        List<T> distinct() {
+            return Collections.unmodifiableList(dictionary);
+        }
+
+        List<T> values() {
+            final List<T> result = new ArrayList<>(codes.length);
+            for (final int code : codes) {
+                result.add(dictionary.get(code));
+            }
+            return result;
+        }
+
+        List<T> values(final int[] rows) {
+            final List<T> result = new ArrayList<>(rows.length);
+            for (final int row : rows) {
+                result.add(get(row));
+            }
+            return result;
+        }
+
+        /**
+         * Returns value whose code has maximal count, ties are broken by maximum in given order
+         */
+        private T argMax(final int[] counts, final Comparator<? super T> order, final T def) {
+            int best = -1;
+            for (int code = 0; code < counts.length; code++) {
+                if (best < 0 || counts[code] > counts[best] || counts[code] == counts[best]
+                        && order.compare(dictionary.get(code), dictionary.get(best)) > 0) {
+                    best = code;
+                }
+            }
+            return best < 0 ? def : dictionary.get(best);
+        }
+    }
+}
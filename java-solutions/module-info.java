@@ -6,6 +6,7 @@ module info.kgeorgiy.ja.urazov {
     requires info.kgeorgiy.java.advanced.crawler;
     requires info.kgeorgiy.java.advanced.hello;
     requires java.compiler;
+    requires jdk.jfr;
 
     exports info.kgeorgiy.ja.urazov.implementor;
 }